@@ -0,0 +1,128 @@
+package com.magumboi.webcameraapp.service;
+
+import com.magumboi.webcameraapp.WebCameraAppApplication;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full upload path: multipart POST to {@code /api/upload-photo} on a running app
+ * whose Drive client talks to a {@link FakeDriveServer}.
+ * <p>
+ * Run with several threads ({@code -t 8}) to see executor and cache behaviour
+ * under contention; vary {@code latencyMillis} and {@code errorRate} to see how
+ * the concurrency limit and retries shape throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UploadEndToEndBenchmark {
+
+    private static final String BOUNDARY = "benchmark-boundary";
+
+    @Param({"256", "4096"})
+    public int photoKb;
+
+    @Param({"0", "50"})
+    public long latencyMillis;
+
+    @Param({"0", "0.05"})
+    public double errorRate;
+
+    @Param({"true", "false"})
+    public boolean resumable;
+
+    private FakeDriveServer server;
+    private ConfigurableApplicationContext app;
+    private Path workDir;
+    private HttpClient client;
+    private URI uploadUri;
+    private byte[] body;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new FakeDriveServer(latencyMillis, errorRate);
+        workDir = Files.createTempDirectory("upload-benchmark");
+        Path key = server.writeServiceAccountKey(workDir);
+
+        app = SpringApplication.run(WebCameraAppApplication.class,
+            "--server.port=0",
+            "--logging.level.root=WARN",
+            "--logging.level.web=WARN",
+            "--google.drive.credentials.path=" + key,
+            "--google.drive.folder.id=root",
+            "--google.drive.root-url=" + server.rootUrl(),
+            "--google.drive.upload.resumable=" + resumable,
+            "--google.drive.resilience.base-delay=10ms",
+            "--google.drive.resilience.max-delay=100ms",
+            // Every iteration sends the same photo from the same user: measure real uploads
+            "--upload.admission.enabled=false",
+            "--upload.dedup.enabled=false");
+        String port = app.getEnvironment().getProperty("local.server.port");
+        uploadUri = URI.create("http://localhost:" + port + "/api/upload-photo");
+        client = HttpClient.newHttpClient();
+        body = multipartBody(photoKb * 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        app.close();
+        server.close();
+        try (var files = Files.walk(workDir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int uploadPhoto() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uploadUri)
+            .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+        int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        // A failed upload is fast and would inflate throughput
+        if (status != 200) {
+            throw new IllegalStateException("Upload failed with HTTP " + status);
+        }
+        return status;
+    }
+
+    private static byte[] multipartBody(int photoBytes) throws Exception {
+        byte[] photo = new byte[photoBytes];
+        new Random(42).nextBytes(photo);
+        photo[0] = (byte) 0xFF;
+        photo[1] = (byte) 0xD8;
+        photo[2] = (byte) 0xFF;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(photoBytes + 512);
+        out.write(("--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"userName\"\r\n\r\n"
+            + "Ana\r\n"
+            + "--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"photo.jpg\"\r\n"
+            + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        out.write(photo);
+        out.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,121 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.DriveScopes;
+import com.google.auth.oauth2.GoogleCredentials;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-request work on the upload path that does not move photo bytes:
+ * naming, client lookup and creation, and folder resolution, cached and uncached.
+ * <p>
+ * Folder lookups run the service's own code over HTTP to a {@link FakeDriveServer}
+ * so the uncached numbers include a real round trip without depending on Google.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UploadPathBenchmark {
+
+    private FakeDriveServer server;
+    private Path workDir;
+    private GoogleDriveService service;
+    private Drive drive;
+    private DriveClientCache clientCache;
+    private FolderCache folderCache;
+    private final FolderCache.Key folderKey = new FolderCache.Key("default", "root", "Ana");
+    private final AtomicLong users = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new FakeDriveServer(0, 0);
+        workDir = Files.createTempDirectory("upload-path-benchmark");
+        GoogleCredentials credentials;
+        try (InputStream key = Files.newInputStream(server.writeServiceAccountKey(workDir))) {
+            credentials = GoogleCredentials.fromStream(key).createScoped(Set.of(DriveScopes.DRIVE_FILE));
+        }
+
+        // Only the fields the benchmarked methods use; every lookup misses the zero-TTL folder cache
+        service = new GoogleDriveService();
+        ReflectionTestUtils.setField(service, "baseCredentials", credentials);
+        ReflectionTestUtils.setField(service, "httpTransport", new NetHttpTransport());
+        ReflectionTestUtils.setField(service, "rootUrl", server.rootUrl());
+        ReflectionTestUtils.setField(service, "retryInitialBackoff", Duration.ofMillis(500));
+        ReflectionTestUtils.setField(service, "retryMaxElapsed", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(service, "folderId", "root");
+        ReflectionTestUtils.setField(service, "folderCache", new FolderCache(1000, Duration.ZERO));
+        ReflectionTestUtils.setField(service, "resilience",
+            new DriveResilience(3, Duration.ofMillis(10), Duration.ofMillis(100), 5, Duration.ofSeconds(30)));
+
+        drive = service.createDriveServiceForUser("ana@example.com");
+        // Creates the folder and fetches the first token outside the measurement
+        service.getUserFolder("Ana", drive, "ana@example.com");
+        clientCache = new DriveClientCache(100, email -> drive);
+        clientCache.get("ana@example.com");
+        folderCache = new FolderCache(1000, Duration.ofHours(1));
+        folderCache.put(folderKey, "folder-ana");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        server.close();
+        try (var files = Files.walk(workDir)) {
+            files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public String buildFilename() {
+        String sanitized = GoogleDriveService.sanitizeUserName(" Ana <María> ");
+        return GoogleDriveService.buildFilename(sanitized, "2024-01-01_12-00-00", null, "jpg");
+    }
+
+    @Benchmark
+    public Drive clientCacheHit() {
+        return clientCache.get("ana@example.com");
+    }
+
+    /**
+     * What a client cache miss costs: delegated credentials and a Drive client for a new user
+     */
+    @Benchmark
+    public Drive clientCreation() {
+        return service.createDriveServiceForUser("user-" + users.incrementAndGet() + "@example.com");
+    }
+
+    @Benchmark
+    public String folderCacheHit() throws Exception {
+        return folderCache.get(folderKey, () -> {
+            throw new IllegalStateException("folder should be cached");
+        });
+    }
+
+    @Benchmark
+    public String folderLookupUncached() {
+        return service.getUserFolder("Ana", drive, "ana@example.com");
+    }
+
+    @Benchmark
+    public String findFolderByName() throws IOException {
+        return service.findFolderByName("Ana-fotos", "root", drive);
+    }
+}
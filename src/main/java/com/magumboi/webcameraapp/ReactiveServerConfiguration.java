@@ -0,0 +1,30 @@
+package com.magumboi.webcameraapp;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * With {@code spring.main.web-application-type=reactive} the app runs on Netty rather than
+ * the Tomcat that the servlet starter puts on the classpath, with a small fixed set of
+ * event-loop threads ({@code server.netty.event-loop-threads}, 0 for one per CPU).
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+class ReactiveServerConfiguration {
+
+    @Bean(destroyMethod = "dispose")
+    LoopResources serverLoopResources(@Value("${server.netty.event-loop-threads:0}") int threads) {
+        return LoopResources.create("http-server", threads > 0 ? threads : LoopResources.DEFAULT_IO_WORKER_COUNT, true);
+    }
+
+    @Bean
+    NettyReactiveWebServerFactory nettyReactiveWebServerFactory(LoopResources serverLoopResources) {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        factory.addServerCustomizers(server -> server.runOn(serverLoopResources));
+        return factory;
+    }
+}
@@ -0,0 +1,133 @@
+package com.magumboi.webcameraapp.controller;
+
+import com.magumboi.webcameraapp.service.GoogleDriveService;
+import com.magumboi.webcameraapp.service.UploadAdmissionService;
+import com.magumboi.webcameraapp.service.UploadRejectedException;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.magumboi.webcameraapp.controller.UploadResponses.*;
+
+/**
+ * Direct uploads: the client sends the photo straight to a Drive upload session, so these
+ * endpoints only exist with the Google Drive backend
+ */
+@RestController
+@RequestMapping("/api")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "storage.backend", havingValue = "google-drive", matchIfMissing = true)
+public class DirectUploadController {
+
+    @Autowired
+    private GoogleDriveService googleDriveService;
+
+    @Autowired
+    private PhotoUploadHandler uploadHandler;
+
+    @Autowired
+    private UploadAdmissionService uploadAdmissionService;
+
+    // Direct uploads get the same limit as photos sent through the multipart endpoints
+    @Value("${spring.servlet.multipart.max-file-size:1MB}")
+    private DataSize maxFileSize;
+
+    /**
+     * Opens a Drive upload session so the client sends the photo straight to Drive
+     * (PUT to uploadUrl) instead of through this server, then reports it to
+     * /api/upload-sessions/{sessionId}/complete
+     */
+    @PostMapping("/upload-sessions")
+    public Mono<ResponseEntity<Map<String, String>>> startUploadSession(
+            @RequestParam(value = "contentType", required = false, defaultValue = "image/jpeg") String contentType,
+            @RequestParam(value = "size", required = false) Long size,
+            @RequestParam(value = "userName", required = false) String userName,
+            @RequestParam(value = "userEmail", required = false) String userEmail,
+            @RequestHeader(value = HttpHeaders.ORIGIN, required = false) String origin,
+            HttpServletRequest request) {
+        if (!contentType.startsWith("image/")) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "File must be an image");
+            return Mono.just(ResponseEntity.badRequest().body(response));
+        }
+        if (size == null || size <= 0) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "The photo size in bytes is required");
+            return Mono.just(ResponseEntity.badRequest().body(response));
+        }
+        if (size > maxFileSize.toBytes()) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "Photo exceeds the maximum size of " + maxFileSize.toBytes() + " bytes");
+            return Mono.just(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response));
+        }
+
+        // Opening a session counts against the user's rate limit like an upload
+        UploadAdmissionService.Permit permit;
+        try {
+            permit = uploadAdmissionService.admit(userName, userEmail, clientIp(request), 1);
+        } catch (UploadRejectedException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return Mono.just(tooManyRequests(e, response));
+        }
+
+        return Mono.defer(() -> googleDriveService.startDirectUpload(userName, userEmail, contentType, size, origin))
+            .map(session -> {
+                Map<String, String> response = new HashMap<>();
+                response.put("sessionId", session.sessionId());
+                response.put("uploadUrl", session.uploadUrl());
+                response.put("fileName", session.fileName());
+                return ResponseEntity.status(HttpStatus.CREATED).body(response);
+            })
+            .onErrorResume(error -> Mono.just(uploadErrorResponse(error)))
+            .doFinally(signal -> permit.release());
+    }
+
+    @PostMapping("/upload-sessions/{sessionId}/complete")
+    public Mono<ResponseEntity<Map<String, String>>> completeUploadSession(
+            @PathVariable String sessionId,
+            @RequestParam(value = "fileId", required = false) String fileId) {
+        if (fileId == null || fileId.trim().isEmpty()) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "No fileId provided");
+            return Mono.just(ResponseEntity.badRequest().body(response));
+        }
+
+        return Mono.defer(() -> googleDriveService.completeDirectUpload(sessionId, fileId.trim()))
+            .map(uploadedId -> {
+                Map<String, String> response = new HashMap<>();
+                response.put("message", "Photo uploaded successfully to Google Drive");
+                response.put("fileId", uploadedId);
+                return ResponseEntity.ok(response);
+            })
+            .switchIfEmpty(Mono.fromSupplier(() -> {
+                Map<String, String> response = new HashMap<>();
+                response.put("error", "Unknown or expired upload session");
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+            }))
+            .onErrorResume(error -> {
+                IllegalArgumentException mismatch = findCause(error, IllegalArgumentException.class);
+                if (mismatch == null) {
+                    return Mono.just(uploadErrorResponse(error));
+                }
+                Map<String, String> response = new HashMap<>();
+                response.put("error", mismatch.getMessage());
+                return Mono.just(ResponseEntity.status(HttpStatus.CONFLICT).body(response));
+            });
+    }
+
+    private String clientIp(HttpServletRequest request) {
+        return uploadHandler.clientIp(request.getRemoteAddr(), request.getHeader("X-Forwarded-For"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.magumboi.webcameraapp.controller;
+
+import com.magumboi.webcameraapp.service.PhotoMetadata;
+import com.magumboi.webcameraapp.service.PhotoStorage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only photo metadata for gallery views and reconciliation jobs, served on both the
+ * servlet and the reactive stack
+ */
+@RestController
+@RequestMapping("/api")
+public class PhotoMetadataController {
+
+    @Autowired
+    private PhotoStorage photoStorage;
+
+    @Value("${photos.metadata.max-ids:500}")
+    private int maxIds;
+
+    /**
+     * Metadata of many photos in one call ({@code ids=a,b,c}); IDs that are not found are listed under "missing"
+     */
+    @GetMapping("/photos/metadata")
+    public Mono<ResponseEntity<Map<String, Object>>> getPhotoMetadata(
+            @RequestParam List<String> ids,
+            @RequestParam(value = "userEmail", required = false) String userEmail) {
+        List<String> fileIds = ids.stream().map(String::trim).filter(id -> !id.isEmpty()).distinct().toList();
+        if (fileIds.isEmpty() || fileIds.size() > maxIds) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "Between 1 and " + maxIds + " file IDs are allowed per request");
+            return Mono.just(ResponseEntity.badRequest().body(response));
+        }
+
+        return photoStorage.getMetadata(fileIds, userEmail)
+            .map(found -> {
+                Map<String, Object> response = new HashMap<>();
+                response.put("files", new ArrayList<>(found.values()));
+                response.put("missing", fileIds.stream().filter(id -> !found.containsKey(id)).toList());
+                return ResponseEntity.ok(response);
+            })
+            .onErrorResume(error -> {
+                Map<String, Object> response = new HashMap<>();
+                if (error instanceof IllegalStateException && error.getMessage().contains("not configured")) {
+                    response.put("error", error.getMessage());
+                    return Mono.just(ResponseEntity.badRequest().body(response));
+                }
+                response.put("error", "Failed to get photo metadata: " + error.getMessage());
+                return Mono.just(ResponseEntity.internalServerError().body(response));
+            });
+    }
+
+    /**
+     * Photos in a user's folder, newest first, streamed as newline-delimited JSON while the
+     * storage pages through the folder (or as one JSON array with {@code Accept: application/json})
+     */
+    @GetMapping(value = "/photos", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public Flux<PhotoMetadata> listPhotos(
+            @RequestParam(value = "userName", required = false) String userName,
+            @RequestParam(value = "userEmail", required = false) String userEmail) {
+        return photoStorage.listPhotos(userName, userEmail);
+    }
+}
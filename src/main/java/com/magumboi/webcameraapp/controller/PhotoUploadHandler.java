@@ -0,0 +1,228 @@
+package com.magumboi.webcameraapp.controller;
+
+import com.magumboi.webcameraapp.service.IdempotencyRegistry;
+import com.magumboi.webcameraapp.service.PhotoStorage;
+import com.magumboi.webcameraapp.service.UploadAdmissionService;
+import com.magumboi.webcameraapp.service.UploadProgressListener;
+import com.magumboi.webcameraapp.service.UploadProgressRegistry;
+import com.magumboi.webcameraapp.service.UploadRejectedException;
+import com.magumboi.webcameraapp.service.UploadSpoolService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.magumboi.webcameraapp.controller.UploadResponses.*;
+
+/**
+ * Upload flow shared by the servlet and reactive controllers once the request is parsed:
+ * validation, idempotency, admission control, spooling or storing, and the response
+ */
+@Component
+class PhotoUploadHandler {
+
+    @Autowired
+    private PhotoStorage photoStorage;
+
+    @Autowired
+    private UploadProgressRegistry uploadProgressRegistry;
+
+    @Autowired
+    private UploadSpoolService uploadSpoolService;
+
+    @Autowired
+    private UploadAdmissionService uploadAdmissionService;
+
+    @Autowired
+    private IdempotencyRegistry idempotencyRegistry;
+
+    @Value("${upload.batch.max-files:10}")
+    private int maxBatchFiles;
+
+    /**
+     * Validates, admits and stores one photo, honoring an Idempotency-Key
+     * @param clientIp Client address for the per-IP rate limit
+     */
+    Mono<ResponseEntity<Map<String, String>>> uploadPhoto(MultipartFile file, String userName, String userEmail,
+                                                         String uploadId, String idempotencyKey, String clientIp) {
+        return uploadPhoto(file, userName, userEmail, uploadId, idempotencyKey, clientIp, Mono.empty());
+    }
+
+    /**
+     * Like {@link #uploadPhoto(MultipartFile, String, String, String, String, String)} for a photo the
+     * caller has to free, e.g. a temporary file
+     * @param release Frees the photo once nothing reads it anymore: when an upload shared under an
+     *                Idempotency-Key finishes, even if this request went away before; otherwise when
+     *                the response is done
+     */
+    Mono<ResponseEntity<Map<String, String>>> uploadPhoto(MultipartFile file, String userName, String userEmail,
+                                                         String uploadId, String idempotencyKey, String clientIp,
+                                                         Mono<Void> release) {
+        // Validate file
+        if (file == null || file.isEmpty()) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "No file provided");
+            return releasing(Mono.just(ResponseEntity.badRequest().body(response)), release);
+        }
+
+        // Check if it's an image
+        String contentType = file.getContentType();
+        if (contentType == null || !contentType.startsWith("image/")) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", "File must be an image");
+            return releasing(Mono.just(ResponseEntity.badRequest().body(response)), release);
+        }
+
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return releasing(admitAndUpload(file, userName, userEmail, uploadId, clientIp), release);
+        }
+
+        // A retry with the same key joins the upload in flight or gets its result, without uploading again
+        String key = idempotencyKey.trim();
+        if (key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", IDEMPOTENCY_KEY + " must be at most " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+            return releasing(Mono.just(ResponseEntity.badRequest().body(response)), release);
+        }
+        String fingerprint = String.join("|", String.valueOf(userName), String.valueOf(userEmail),
+            String.valueOf(file.getOriginalFilename()), String.valueOf(file.getSize()));
+        IdempotencyRegistry.Claim<ResponseEntity<Map<String, String>>> claim;
+        try {
+            // The shared upload outlives a client that goes away, so it frees the photo itself
+            claim = idempotencyRegistry.claim(key, fingerprint,
+                () -> releasing(admitAndUpload(file, userName, userEmail, uploadId, clientIp), release),
+                response -> response.getStatusCode().is2xxSuccessful());
+        } catch (IdempotencyRegistry.KeyReusedException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return releasing(Mono.just(ResponseEntity.unprocessableEntity().body(response)), release);
+        }
+        // A retry joining an earlier upload never reads its own copy of the photo
+        return claim.original() ? claim.result()
+            : releasing(claim.result().map(UploadResponses::replayed), release);
+    }
+
+    /**
+     * Runs release once the result completes, fails or is cancelled
+     */
+    private static <T> Mono<T> releasing(Mono<T> result, Mono<Void> release) {
+        return Mono.usingWhen(Mono.just(Boolean.TRUE), ignored -> result, ignored -> release);
+    }
+
+    private Mono<ResponseEntity<Map<String, String>>> admitAndUpload(MultipartFile file, String userName,
+                                                                    String userEmail, String uploadId,
+                                                                    String clientIp) {
+        // Rate limit per user and client IP, and cap the uploads in flight
+        UploadAdmissionService.Permit permit;
+        try {
+            permit = uploadAdmissionService.admit(userName, userEmail, clientIp, 1);
+        } catch (UploadRejectedException e) {
+            Map<String, String> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return Mono.just(tooManyRequests(e, response));
+        }
+
+        // Acknowledge immediately and let the background drainer push it to Drive
+        if (uploadSpoolService.isEnabled()) {
+            return Mono.fromCallable(() -> uploadSpoolService.enqueue(file, userName, userEmail))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(spoolId -> spooledResponse(spoolId, userName, userEmail))
+                .onErrorResume(error -> {
+                    Map<String, String> response = new HashMap<>();
+                    response.put("error", "Failed to queue photo for upload: " + error.getMessage());
+                    return Mono.just(ResponseEntity.internalServerError().body(response));
+                })
+                .doFinally(signal -> permit.release());
+        }
+
+        // Track progress when the client wants to poll /api/upload-progress/{uploadId}
+        boolean tracked = uploadId != null && !uploadId.trim().isEmpty();
+        UploadProgressListener progressListener = tracked
+            ? uploadProgressRegistry.start(uploadId.trim(), file.getSize())
+            : UploadProgressListener.NONE;
+
+        // Upload without holding a request thread during the storage call
+        return Mono.defer(() -> photoStorage.uploadPhoto(file, userName, userEmail, progressListener))
+            .doOnSuccess(fileId -> {
+                if (tracked) {
+                    uploadProgressRegistry.complete(uploadId.trim());
+                }
+            })
+            .doOnError(error -> {
+                if (tracked) {
+                    uploadProgressRegistry.fail(uploadId.trim());
+                }
+            })
+            .map(fileId -> uploadSuccessResponse(fileId, userName, userEmail))
+            .onErrorResume(error -> Mono.just(uploadErrorResponse(error)))
+            .doFinally(signal -> permit.release());
+    }
+
+    /**
+     * Validates, admits and stores several photos for the same user
+     */
+    Mono<ResponseEntity<Map<String, Object>>> uploadPhotos(List<MultipartFile> files, String userName,
+                                                           String userEmail, String clientIp) {
+        // Validate files
+        if (files == null || files.isEmpty() || files.stream().allMatch(MultipartFile::isEmpty)) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "No files provided");
+            return Mono.just(ResponseEntity.badRequest().body(response));
+        }
+        if (files.size() > maxBatchFiles) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "Too many files, at most " + maxBatchFiles + " per request");
+            return Mono.just(ResponseEntity.badRequest().body(response));
+        }
+        if (files.size() > uploadAdmissionService.getMaxBatch()) {
+            // Could never be admitted, however long the client waits
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "Too many files for the upload rate limit, at most "
+                + uploadAdmissionService.getMaxBatch() + " per request");
+            return Mono.just(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response));
+        }
+
+        // Every file must be a non-empty image
+        List<String> invalid = files.stream()
+            .filter(file -> file.isEmpty() || file.getContentType() == null || !file.getContentType().startsWith("image/"))
+            .map(MultipartFile::getOriginalFilename)
+            .toList();
+        if (!invalid.isEmpty()) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "All files must be images");
+            response.put("invalidFiles", invalid);
+            return Mono.just(ResponseEntity.badRequest().body(response));
+        }
+
+        // A batch is charged one token per photo
+        UploadAdmissionService.Permit permit;
+        try {
+            permit = uploadAdmissionService.admit(userName, userEmail, clientIp, files.size());
+        } catch (UploadRejectedException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            return Mono.just(tooManyRequests(e, response));
+        }
+
+        return Mono.defer(() -> photoStorage.uploadPhotos(files, userName, userEmail))
+            .map(results -> batchResponse(results, userName, userEmail))
+            .onErrorResume(error -> {
+                Map<String, Object> response = new HashMap<>();
+                response.put("error", "Failed to upload photos to Google Drive: " + error.getMessage());
+                return Mono.just(ResponseEntity.internalServerError().body(response));
+            })
+            .doFinally(signal -> permit.release());
+    }
+
+    String clientIp(String remoteAddr, String forwardedFor) {
+        return uploadAdmissionService.clientIp(remoteAddr, forwardedFor);
+    }
+}
@@ -0,0 +1,178 @@
+package com.magumboi.webcameraapp.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.FormPartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.magumboi.webcameraapp.controller.UploadResponses.IDEMPOTENCY_KEY;
+
+/**
+ * Upload endpoints when the app runs on the reactive stack (Netty,
+ * {@code spring.main.web-application-type=reactive}).
+ * The multipart body is consumed as a stream of part events: each photo's buffers are
+ * written to a temporary file as they arrive, and more of the body is only requested as
+ * the writes complete, so event-loop threads never block and a photo is never held in
+ * memory whole. The upload flow itself is shared with the servlet controller.
+ */
+@RestController
+@RequestMapping("/api")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactivePhotoUploadController {
+
+    @Autowired
+    private PhotoUploadHandler uploadHandler;
+
+    @Value("${upload.reactive.max-file-size:20MB}")
+    private DataSize maxFileSize;
+
+    @PostMapping(value = "/upload-photo", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Mono<ResponseEntity<Map<String, String>>> uploadPhoto(
+            @RequestBody Flux<PartEvent> parts,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            ServerHttpRequest request) {
+        String clientIp = clientIp(request);
+        // The handler deletes the photo once the upload reading it is done, which with an
+        // Idempotency-Key can be after this request went away
+        return receive(parts)
+            .flatMap(form -> uploadHandler.uploadPhoto(form.file("file"), form.field("userName"),
+                form.field("userEmail"), form.field("uploadId"), idempotencyKey, clientIp, form.delete()))
+            .onErrorResume(DataBufferLimitException.class, e -> {
+                Map<String, String> response = new HashMap<>();
+                response.put("error", e.getMessage());
+                return Mono.just(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response));
+            });
+    }
+
+    @PostMapping(value = "/upload-photos", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Mono<ResponseEntity<Map<String, Object>>> uploadPhotos(
+            @RequestBody Flux<PartEvent> parts,
+            ServerHttpRequest request) {
+        String clientIp = clientIp(request);
+        return Mono.usingWhen(receive(parts),
+                form -> uploadHandler.uploadPhotos(form.files("files"), form.field("userName"),
+                    form.field("userEmail"), clientIp),
+                ReceivedForm::delete)
+            .onErrorResume(DataBufferLimitException.class, e -> {
+                Map<String, Object> response = new HashMap<>();
+                response.put("error", e.getMessage());
+                return Mono.just(ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response));
+            });
+    }
+
+    /**
+     * Reads the form fields and streams each file part to its own temporary file, one part at a time
+     */
+    private Mono<ReceivedForm> receive(Flux<PartEvent> parts) {
+        ReceivedForm form = new ReceivedForm();
+        return parts.windowUntil(PartEvent::isLast)
+            .concatMap(part -> part.switchOnFirst((first, events) -> {
+                if (first.get() instanceof FilePartEvent file) {
+                    return receiveFile(file, events.map(PartEvent::content)).doOnNext(form::add).then();
+                }
+                if (first.get() instanceof FormPartEvent field) {
+                    form.put(field.name(), field.value());
+                }
+                return events.doOnNext(event -> DataBufferUtils.release(event.content())).then();
+            }))
+            .then(Mono.just(form))
+            .onErrorResume(error -> form.delete().then(Mono.error(error)))
+            .doOnCancel(() -> form.delete().subscribe());
+    }
+
+    private Mono<TempFilePhoto> receiveFile(FilePartEvent part, Flux<DataBuffer> content) {
+        long limit = maxFileSize.toBytes();
+        AtomicLong received = new AtomicLong();
+        Flux<DataBuffer> limited = content.handle((buffer, sink) -> {
+            if (received.addAndGet(buffer.readableByteCount()) > limit) {
+                DataBufferUtils.release(buffer);
+                sink.error(new DataBufferLimitException("Photo exceeds the maximum size of " + limit + " bytes"));
+            } else {
+                sink.next(buffer);
+            }
+        });
+        MediaType contentType = part.headers().getContentType();
+        return Mono.fromCallable(() -> Files.createTempFile("upload-", ".part"))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(path -> DataBufferUtils.write(limited, path)
+                .then(Mono.fromSupplier(() -> new TempFilePhoto(part.name(), part.filename(),
+                    contentType != null ? contentType.toString() : null, path, received.get())))
+                .onErrorResume(error -> TempFilePhoto.delete(path).then(Mono.error(error))));
+    }
+
+    private String clientIp(ServerHttpRequest request) {
+        InetSocketAddress remote = request.getRemoteAddress();
+        String remoteAddr = remote == null ? null
+            : remote.getAddress() != null ? remote.getAddress().getHostAddress() : remote.getHostString();
+        return uploadHandler.clientIp(remoteAddr, request.getHeaders().getFirst("X-Forwarded-For"));
+    }
+
+    /**
+     * Form fields and received photos of one multipart request
+     */
+    private static final class ReceivedForm {
+
+        private final Map<String, String> fields = new ConcurrentHashMap<>();
+        private final List<TempFilePhoto> files = Collections.synchronizedList(new ArrayList<>());
+
+        void put(String name, String value) {
+            fields.put(name, value);
+        }
+
+        void add(TempFilePhoto file) {
+            files.add(file);
+        }
+
+        String field(String name) {
+            return fields.get(name);
+        }
+
+        MultipartFile file(String name) {
+            List<MultipartFile> named = files(name);
+            return named.isEmpty() ? null : named.get(0);
+        }
+
+        List<MultipartFile> files(String name) {
+            synchronized (files) {
+                return files.stream().filter(file -> name.equals(file.getName())).map(MultipartFile.class::cast).toList();
+            }
+        }
+
+        Mono<Void> delete() {
+            List<TempFilePhoto> received;
+            synchronized (files) {
+                received = new ArrayList<>(files);
+            }
+            return Flux.fromIterable(received).concatMap(TempFilePhoto::delete).then();
+        }
+    }
+}
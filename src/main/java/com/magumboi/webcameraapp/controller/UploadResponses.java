@@ -0,0 +1,142 @@
+package com.magumboi.webcameraapp.controller;
+
+import com.magumboi.webcameraapp.service.DriveUnavailableException;
+import com.magumboi.webcameraapp.service.PhotoUploadResult;
+import com.magumboi.webcameraapp.service.UploadRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response bodies shared by the servlet and reactive upload controllers
+ */
+final class UploadResponses {
+
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+    static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+    private UploadResponses() {
+    }
+
+    /**
+     * Marks a response that was produced for an earlier request with the same Idempotency-Key
+     */
+    static <T> ResponseEntity<T> replayed(ResponseEntity<T> original) {
+        return ResponseEntity.status(original.getStatusCode())
+            .headers(original.getHeaders())
+            .header(IDEMPOTENT_REPLAYED, "true")
+            .body(original.getBody());
+    }
+
+    static <T> ResponseEntity<T> tooManyRequests(UploadRejectedException rejection, T body) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(rejection.getRetryAfterSeconds()))
+            .body(body);
+    }
+
+    static ResponseEntity<Map<String, Object>> batchResponse(List<PhotoUploadResult> results, String userName,
+                                                            String userEmail) {
+        List<Map<String, String>> perFile = new ArrayList<>();
+        long uploaded = 0;
+        for (PhotoUploadResult result : results) {
+            Map<String, String> item = new HashMap<>();
+            item.put("filename", result.originalFilename());
+            if (result.isSuccess()) {
+                item.put("fileId", result.fileId());
+                uploaded++;
+            } else {
+                item.put("error", result.error());
+            }
+            perFile.add(item);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("message", uploaded + " of " + results.size() + " photos uploaded to Google Drive");
+        response.put("uploaded", uploaded);
+        response.put("failed", results.size() - uploaded);
+        response.put("results", perFile);
+        if (userName != null && !userName.trim().isEmpty()) {
+            response.put("uploadedFor", userName.trim());
+        }
+        if (userEmail != null && !userEmail.trim().isEmpty()) {
+            response.put("uploadedToAccount", userEmail.trim());
+        }
+
+        if (uploaded == 0) {
+            return ResponseEntity.internalServerError().body(response);
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    static ResponseEntity<Map<String, String>> uploadSuccessResponse(String fileId, String userName, String userEmail) {
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Photo uploaded successfully to Google Drive");
+        response.put("fileId", fileId);
+
+        // Log the upload with user information
+        if (userName != null && !userName.trim().isEmpty()) {
+            response.put("uploadedFor", userName.trim());
+        }
+
+        // Log the target user email if provided
+        if (userEmail != null && !userEmail.trim().isEmpty()) {
+            response.put("uploadedToAccount", userEmail.trim());
+        }
+
+        return ResponseEntity.ok(response);
+    }
+
+    static ResponseEntity<Map<String, String>> spooledResponse(String spoolId, String userName, String userEmail) {
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Photo queued for upload to Google Drive");
+        response.put("spoolId", spoolId);
+
+        if (userName != null && !userName.trim().isEmpty()) {
+            response.put("uploadedFor", userName.trim());
+        }
+
+        if (userEmail != null && !userEmail.trim().isEmpty()) {
+            response.put("uploadedToAccount", userEmail.trim());
+        }
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    static ResponseEntity<Map<String, String>> uploadErrorResponse(Throwable error) {
+        Map<String, String> response = new HashMap<>();
+
+        // Drive is degraded and the circuit breaker is shedding load
+        DriveUnavailableException unavailable = findCause(error, DriveUnavailableException.class);
+        if (unavailable != null) {
+            response.put("error", "Google Drive is temporarily unavailable: " + unavailable.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, unavailable.getRetryAfter().toSeconds())))
+                .body(response);
+        }
+
+        // Check if it's a Google Drive configuration error
+        if (error instanceof IllegalStateException &&
+            error.getMessage().contains("not configured")) {
+            response.put("error", "Google Drive no configurado. Las credenciales de Google Drive no están configuradas en el servidor.");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        response.put("error", "Failed to upload photo to Google Drive: " + error.getMessage());
+        return ResponseEntity.internalServerError().body(response);
+    }
+
+    static <T extends Throwable> T findCause(Throwable error, Class<T> type) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return type.cast(cause);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,107 @@
+package com.magumboi.webcameraapp.controller;
+
+import com.magumboi.webcameraapp.service.DriveStatusSampler;
+import com.magumboi.webcameraapp.service.GoogleDriveService;
+import com.magumboi.webcameraapp.service.UploadProgressRegistry;
+import com.magumboi.webcameraapp.service.UploadSpoolService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Read-only upload and Drive status endpoints, served on both the servlet and the reactive stack.
+ * Drive and impersonation status come from the snapshots of {@link DriveStatusSampler};
+ * with another storage backend they report that backend and the upload stats only.
+ */
+@RestController
+@RequestMapping("/api")
+public class UploadStatusController {
+
+    // Only with the Google Drive backend
+    @Autowired(required = false)
+    private GoogleDriveService googleDriveService;
+
+    @Autowired
+    private UploadProgressRegistry uploadProgressRegistry;
+
+    @Autowired
+    private UploadSpoolService uploadSpoolService;
+
+    @Autowired
+    private DriveStatusSampler driveStatusSampler;
+
+    @GetMapping("/upload-progress/{uploadId}")
+    public ResponseEntity<Map<String, Object>> getUploadProgress(@PathVariable String uploadId) {
+        UploadProgressRegistry.Progress progress = uploadProgressRegistry.get(uploadId);
+        if (progress == null) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "Unknown upload");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("uploadId", progress.uploadId());
+        response.put("bytesUploaded", progress.bytesUploaded());
+        response.put("totalBytes", progress.totalBytes());
+        response.put("state", progress.state().name());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/spooled-uploads/{spoolId}")
+    public ResponseEntity<Map<String, Object>> getSpooledUpload(@PathVariable String spoolId) {
+        UploadSpoolService.Status spooled = uploadSpoolService.getStatus(spoolId);
+        Map<String, Object> response = new HashMap<>();
+        if (spooled == null) {
+            response.put("error", "Unknown spooled upload");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        response.put("spoolId", spooled.spoolId());
+        response.put("state", spooled.state().name());
+        response.put("attempts", spooled.attempts());
+        if (spooled.fileId() != null) {
+            response.put("fileId", spooled.fileId());
+        }
+        if (spooled.lastError() != null) {
+            response.put("lastError", spooled.lastError());
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/drive-circuit-breakers")
+    public ResponseEntity<Map<String, Object>> getDriveCircuitBreakers() {
+        if (googleDriveService == null) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", "Photos are not stored in Google Drive");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        return ResponseEntity.ok(googleDriveService.getResilienceStats());
+    }
+
+    @GetMapping("/drive-status")
+    public ResponseEntity<Map<String, Object>> getGoogleDriveStatus() {
+        return cached(driveStatusSampler.getDriveStatus());
+    }
+
+    @GetMapping("/impersonation-status")
+    public ResponseEntity<Map<String, Object>> getImpersonationStatus() {
+        return cached(driveStatusSampler.getImpersonationStatus());
+    }
+
+    /**
+     * Serves a sampled snapshot; a request whose If-None-Match matches its ETag gets 304
+     */
+    private ResponseEntity<Map<String, Object>> cached(DriveStatusSampler.Snapshot snapshot) {
+        return ResponseEntity.ok()
+            .eTag(snapshot.etag())
+            .lastModified(snapshot.lastModified())
+            .cacheControl(CacheControl.maxAge(driveStatusSampler.getSampleInterval()).mustRevalidate())
+            .body(snapshot.body());
+    }
+}
@@ -0,0 +1,221 @@
+package com.magumboi.webcameraapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers which Drive file holds a given photo content in a given folder,
+ * so a photo sent again (browser retry, auto-upload plus manual upload) is not
+ * uploaded a second time.
+ * <p>
+ * Entries are keyed by the SHA-256 of the photo bytes and the target folder,
+ * kept in an LRU bounded by size and TTL. With a store file, entries are also
+ * appended to it and reloaded on startup, so duplicates are caught across restarts.
+ */
+class DedupIndex implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DedupIndex.class);
+    private static final String REMOVED = "-";
+
+    record Key(String contentHash, String folderId) {
+    }
+
+    private record Entry(String fileId, long expiresAtMillis) {
+    }
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Path store;
+    private BufferedWriter storeWriter;
+
+    private final Map<Key, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    DedupIndex(int maxSize, Duration ttl, Path store) throws IOException {
+        this(maxSize, ttl, store, System::currentTimeMillis);
+    }
+
+    /**
+     * @param store Append-only file the index is persisted to, or null to keep it in memory only
+     * @param clock Wall clock in millis, since expiry times outlive the process
+     */
+    DedupIndex(int maxSize, Duration ttl, Path store, LongSupplier clock) throws IOException {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.clock = clock;
+        this.store = store;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > DedupIndex.this.maxSize;
+            }
+        };
+        if (store != null) {
+            load();
+        }
+    }
+
+    /**
+     * @return The Drive file ID already holding this content in this folder, or null
+     */
+    synchronized String get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAtMillis() > clock.getAsLong()) {
+            hits.incrementAndGet();
+            return entry.fileId();
+        }
+        if (entry != null) {
+            entries.remove(key);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    synchronized void put(Key key, String fileId) {
+        Entry entry = new Entry(fileId, clock.getAsLong() + ttlMillis);
+        entries.put(key, entry);
+        append(key, entry);
+    }
+
+    /**
+     * Forgets a file, e.g. after it was found deleted or trashed in Drive
+     */
+    synchronized void invalidate(Key key, String fileId) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.fileId().equals(fileId)) {
+            entries.remove(key);
+            append(key, new Entry(REMOVED, 0));
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    boolean isPersistent() {
+        return store != null;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (storeWriter != null) {
+            storeWriter.close();
+            storeWriter = null;
+        }
+    }
+
+    /**
+     * SHA-256 of the photo bytes, read as a stream so large photos are never copied into memory
+     */
+    static String contentHash(MultipartFile photo) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = photo.getInputStream()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Replays the store (later lines win), then rewrites it with only the live
+     * entries so it does not grow without bound across restarts
+     */
+    private void load() throws IOException {
+        Files.createDirectories(store.toAbsolutePath().getParent());
+        if (Files.exists(store)) {
+            long now = clock.getAsLong();
+            List<String> lines = Files.readAllLines(store, StandardCharsets.UTF_8);
+            for (String line : lines) {
+                String[] parts = line.split(" ");
+                if (parts.length != 4) {
+                    continue; // torn last line after a crash
+                }
+                Key key = new Key(parts[0], parts[1].equals(REMOVED) ? "" : parts[1]);
+                long expiresAt;
+                try {
+                    expiresAt = Long.parseLong(parts[3]);
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (parts[2].equals(REMOVED) || expiresAt <= now) {
+                    entries.remove(key);
+                } else {
+                    entries.put(key, new Entry(parts[2], expiresAt));
+                }
+            }
+            logger.info("Loaded {} deduplication entries from {}", entries.size(), store);
+        }
+
+        Path compacted = store.resolveSibling(store.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (Map.Entry<Key, Entry> entry : entries.entrySet()) {
+                writer.write(line(entry.getKey(), entry.getValue()));
+            }
+        }
+        Files.move(compacted, store, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        storeWriter = Files.newBufferedWriter(store, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void append(Key key, Entry entry) {
+        if (storeWriter == null) {
+            return;
+        }
+        try {
+            storeWriter.write(line(key, entry));
+            storeWriter.flush();
+        } catch (IOException e) {
+            // The index is only an optimization; losing an entry means at worst one extra upload
+            logger.warn("Failed to persist deduplication entry to {}", store, e);
+        }
+    }
+
+    private static String line(Key key, Entry entry) {
+        String folderId = key.folderId() == null || key.folderId().isEmpty() ? REMOVED : key.folderId();
+        return key.contentHash() + " " + folderId + " " + entry.fileId() + " " + entry.expiresAtMillis() + "\n";
+    }
+}
@@ -0,0 +1,10 @@
+package com.magumboi.webcameraapp.service;
+
+/**
+ * A Drive resumable upload session the client sends the photo bytes to itself
+ * @param sessionId Identifies the session when the client reports completion
+ * @param uploadUrl Drive session URI; the client PUTs the photo there
+ * @param fileName Name the photo will have in Drive
+ */
+public record DirectUpload(String sessionId, String uploadUrl, String fileName) {
+}
@@ -0,0 +1,91 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.services.drive.model.File;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Drive resumable upload sessions handed to clients, kept until the client reports
+ * the uploaded file so it can be checked against what the session was opened for.
+ * Bounded by size and TTL; an abandoned session simply expires.
+ * The session ID is written to the file's appProperties, since photo names only
+ * have second resolution and two sessions can expect the same name.
+ */
+class DirectUploadSessions {
+
+    static final String SESSION_PROPERTY = "uploadSession";
+
+    /**
+     * What a session was opened for
+     * @param impersonatedEmail The identity that owns the upload, or null for the default service
+     * @param size The photo size in bytes the client announced
+     */
+    record Session(String sessionId, String impersonatedEmail, String userEmail, String sanitizedUserName,
+                   String folderId, String fileName, long size, long expiresAtNanos) {
+
+        /**
+         * @param file The Drive file with name, size, parents, trashed and appProperties
+         * @return Whether the file was created through this session
+         */
+        boolean uploaded(File file) {
+            boolean inFolder = folderId == null || folderId.trim().isEmpty()
+                || (file.getParents() != null && file.getParents().contains(folderId));
+            return file.getAppProperties() != null && sessionId.equals(file.getAppProperties().get(SESSION_PROPERTY))
+                && fileName.equals(file.getName()) && file.getSize() != null && file.getSize() == size
+                && inFolder && !Boolean.TRUE.equals(file.getTrashed());
+        }
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<String, Session> sessions;
+
+    DirectUploadSessions(int maxSize, Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    DirectUploadSessions(int maxSize, Duration ttl, LongSupplier clock) {
+        this.maxSize = Math.max(1, maxSize);
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.sessions = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                return size() > DirectUploadSessions.this.maxSize;
+            }
+        };
+    }
+
+    synchronized Session open(String impersonatedEmail, String userEmail, String sanitizedUserName,
+                              String folderId, String fileName, long size) {
+        Session session = new Session(UUID.randomUUID().toString(), impersonatedEmail, userEmail,
+            sanitizedUserName, folderId, fileName, size, clock.getAsLong() + ttlNanos);
+        sessions.put(session.sessionId(), session);
+        return session;
+    }
+
+    /**
+     * @return The open session, or null if unknown or expired
+     */
+    synchronized Session get(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session != null && session.expiresAtNanos() - clock.getAsLong() <= 0) {
+            sessions.remove(sessionId);
+            return null;
+        }
+        return session;
+    }
+
+    synchronized void close(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    synchronized int size() {
+        return sessions.size();
+    }
+}
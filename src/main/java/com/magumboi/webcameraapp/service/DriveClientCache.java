@@ -0,0 +1,92 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.services.drive.Drive;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache of impersonated Drive clients keyed by normalized email.
+ * Each cached client keeps its own delegated credentials, so the access token
+ * is reused until it expires instead of being minted on every upload.
+ */
+class DriveClientCache {
+
+    private final int maxSize;
+    private final Function<String, Drive> factory;
+    private final Map<String, Drive> clients;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    DriveClientCache(int maxSize, Function<String, Drive> factory) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.maxSize = maxSize;
+        this.factory = factory;
+        this.clients = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Drive> eldest) {
+                if (size() > DriveClientCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached client for the given email, building it on first use
+     * @param email The normalized (trimmed, lower-case) user email
+     * @return The Drive client impersonating that user
+     */
+    synchronized Drive get(String email) {
+        Drive client = clients.get(email);
+        if (client != null) {
+            hits.incrementAndGet();
+            return client;
+        }
+        misses.incrementAndGet();
+        client = factory.apply(email);
+        clients.put(email, client);
+        return client;
+    }
+
+    synchronized void invalidate(String email) {
+        clients.remove(email);
+    }
+
+    /**
+     * @return The clients currently cached, e.g. to refresh their tokens ahead of expiry
+     */
+    synchronized List<Drive> snapshot() {
+        return new ArrayList<>(clients.values());
+    }
+
+    synchronized int size() {
+        return clients.size();
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getEvictions() {
+        return evictions.get();
+    }
+}
@@ -0,0 +1,142 @@
+package com.magumboi.webcameraapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor for blocking Drive API calls.
+ * Runs tasks either on a fixed platform thread pool or on one virtual thread per task
+ * (Java 21+), and caps the number of Drive calls running at once with a semaphore
+ * so bursts queue up instead of exceeding the Drive quota.
+ */
+class DriveExecutor implements Executor {
+
+    private static final Logger logger = LoggerFactory.getLogger(DriveExecutor.class);
+
+    enum Mode {
+        FIXED, VIRTUAL;
+
+        static Mode parse(String value) {
+            return Mode.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private final Mode mode;
+    private final ExecutorService delegate;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+
+    DriveExecutor(Mode mode, int threads, int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent, true);
+        if (mode == Mode.VIRTUAL) {
+            ExecutorService virtual = newVirtualThreadPerTaskExecutor();
+            if (virtual != null) {
+                this.mode = Mode.VIRTUAL;
+                this.delegate = virtual;
+                return;
+            }
+            logger.warn("Virtual threads require Java 21+, falling back to a fixed pool of {} threads", threads);
+        }
+        this.mode = Mode.FIXED;
+        this.delegate = Executors.newFixedThreadPool(threads);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        queued.incrementAndGet();
+        try {
+            delegate.execute(() -> {
+                boolean acquired = false;
+                try {
+                    permits.acquire();
+                    acquired = true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    queued.decrementAndGet();
+                }
+                if (!acquired) {
+                    return;
+                }
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                    completed.incrementAndGet();
+                    permits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    void shutdown() {
+        delegate.shutdown();
+        try {
+            if (!delegate.awaitTermination(10, TimeUnit.SECONDS)) {
+                delegate.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            delegate.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Looks up Executors.newVirtualThreadPerTaskExecutor reflectively so the
+     * project still compiles and runs on Java 17
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    Mode getMode() {
+        return mode;
+    }
+
+    int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Tasks submitted but not yet holding a concurrency permit
+     */
+    int getQueueDepth() {
+        return queued.get();
+    }
+
+    /**
+     * Tasks currently running a Drive call
+     */
+    int getActiveCount() {
+        return active.get();
+    }
+
+    long getCompletedCount() {
+        return completed.get();
+    }
+}
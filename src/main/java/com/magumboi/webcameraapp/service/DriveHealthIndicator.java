@@ -0,0 +1,37 @@
+package com.magumboi.webcameraapp.service;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health of the Drive clients ("drive" in /actuator/health and the readiness group):
+ * UP once warm-up completed, OUT_OF_SERVICE while it runs and DOWN if it failed
+ * (it is retried in the background). UNKNOWN when Drive is disabled. Only registered with
+ * the Google Drive backend.
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "google-drive", matchIfMissing = true)
+public class DriveHealthIndicator implements HealthIndicator {
+
+    private final GoogleDriveService googleDriveService;
+
+    public DriveHealthIndicator(GoogleDriveService googleDriveService) {
+        this.googleDriveService = googleDriveService;
+    }
+
+    @Override
+    public Health health() {
+        DriveWarmup.Status status = googleDriveService.getWarmupStatus();
+        if (status == null) {
+            return Health.unknown().withDetail("configured", false).build();
+        }
+        Health.Builder health = switch (status) {
+            case WARM -> Health.up();
+            case FAILED -> Health.down();
+            case PENDING, WARMING -> Health.outOfService();
+        };
+        return health.withDetails(googleDriveService.getWarmupStats()).build();
+    }
+}
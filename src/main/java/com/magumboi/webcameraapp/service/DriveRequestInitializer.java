@@ -0,0 +1,84 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.client.http.HttpBackOffIOExceptionHandler;
+import com.google.api.client.http.HttpBackOffUnsuccessfulResponseHandler;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpUnsuccessfulResponseHandler;
+import com.google.api.client.util.ExponentialBackOff;
+import com.google.auth.Credentials;
+import com.google.auth.http.HttpCredentialsAdapter;
+
+import java.io.IOException;
+
+/**
+ * Request initializer for Drive clients.
+ * Adds credentials (when given) and, for resumable upload requests only, transport-level
+ * retries with exponential backoff for dropped connections and 5xx responses. The uploader
+ * relies on these handlers: after a retried failure it asks Drive for the last committed
+ * offset and resumes from there, which is safe to repeat. Every other call, in particular
+ * the non-idempotent files.create of photos and folders, is retried by {@link DriveResilience}
+ * alone. Those creates make their own repeats safe: folder resolution looks the folder up
+ * again, and a photo create looks for the file tagged by the earlier attempt.
+ */
+class DriveRequestInitializer implements HttpRequestInitializer {
+
+    private final Credentials rawCredentials;
+    private final HttpCredentialsAdapter credentials;
+    private final int initialBackoffMillis;
+    private final int maxElapsedMillis;
+
+    DriveRequestInitializer(Credentials credentials, int initialBackoffMillis, int maxElapsedMillis) {
+        this.rawCredentials = credentials;
+        this.credentials = credentials != null ? new HttpCredentialsAdapter(credentials) : null;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxElapsedMillis = maxElapsedMillis;
+    }
+
+    @Override
+    public void initialize(HttpRequest request) throws IOException {
+        if (credentials != null) {
+            credentials.initialize(request);
+        }
+        HttpUnsuccessfulResponseHandler authHandler = request.getUnsuccessfulResponseHandler();
+        HttpBackOffUnsuccessfulResponseHandler serverErrorHandler =
+            new HttpBackOffUnsuccessfulResponseHandler(newBackOff());
+        HttpBackOffIOExceptionHandler ioErrorHandler = new HttpBackOffIOExceptionHandler(newBackOff());
+
+        // Method and URL are only set after initialization, so the handlers check them when they fire
+        request.setIOExceptionHandler((req, supportsRetry) ->
+            isResumableUpload(req) && ioErrorHandler.handleIOException(req, supportsRetry));
+        request.setUnsuccessfulResponseHandler((req, response, supportsRetry) -> {
+            if (authHandler != null && authHandler.handleResponse(req, response, supportsRetry)) {
+                return true;
+            }
+            return isResumableUpload(req) && serverErrorHandler.handleResponse(req, response, supportsRetry);
+        });
+    }
+
+    /**
+     * Opening a resumable session (POST with uploadType=resumable) creates nothing until the
+     * bytes are committed, and chunks (PUT to the session URI) resume from the committed offset
+     */
+    static boolean isResumableUpload(HttpRequest request) {
+        if ("PUT".equals(request.getRequestMethod())) {
+            return true;
+        }
+        Object uploadType = request.getUrl().getFirst("uploadType");
+        return "resumable".equals(uploadType);
+    }
+
+    /**
+     * @return The credentials requests are authorized with, or null
+     */
+    Credentials getCredentials() {
+        return rawCredentials;
+    }
+
+    private ExponentialBackOff newBackOff() {
+        return new ExponentialBackOff.Builder()
+            .setInitialIntervalMillis(initialBackoffMillis)
+            .setMaxElapsedTimeMillis(maxElapsedMillis)
+            .build();
+    }
+}
@@ -0,0 +1,264 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.util.Sleeper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Retry and circuit breaker policy for Drive API calls.
+ * <p>
+ * Rate limits (429, 403 rateLimitExceeded), 5xx responses and I/O errors are retried
+ * with exponential backoff and full jitter, waiting at least as long as Drive's
+ * {@code Retry-After}. Each Drive identity (impersonated user or the default account)
+ * has its own breaker: after enough consecutive failed calls it opens and calls fail
+ * fast with {@link DriveUnavailableException} until a trial call succeeds.
+ * A {@code Retry-After} longer than the max delay is not waited out: the call fails with
+ * {@link DriveUnavailableException} carrying Drive's delay, for the client to retry later.
+ * An I/O error does not tell whether Drive applied the request, so a call that creates
+ * something must first look for what an earlier attempt may have created.
+ * <p>
+ * Backoff sleeps happen on the calling thread, so a call running on the {@link DriveExecutor}
+ * keeps its permit while it waits; the max delay bounds how long that can be.
+ */
+class DriveResilience {
+
+    private static final Logger logger = LoggerFactory.getLogger(DriveResilience.class);
+
+    /**
+     * A single Drive API call
+     */
+    @FunctionalInterface
+    interface DriveCall<T> {
+        T execute() throws IOException;
+    }
+
+    enum BreakerState { CLOSED, OPEN, HALF_OPEN }
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier clock;
+    private final Sleeper sleeper;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    DriveResilience(int maxAttempts, Duration baseDelay, Duration maxDelay,
+                    int failureThreshold, Duration openDuration) {
+        this(maxAttempts, baseDelay, maxDelay, failureThreshold, openDuration, System::nanoTime, Sleeper.DEFAULT);
+    }
+
+    DriveResilience(int maxAttempts, Duration baseDelay, Duration maxDelay, int failureThreshold,
+                    Duration openDuration, LongSupplier clock, Sleeper sleeper) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = baseDelay.toMillis();
+        this.maxDelayMillis = maxDelay.toMillis();
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openNanos = openDuration.toNanos();
+        this.clock = clock;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * Runs a Drive call for an identity with retries, guarded by that identity's breaker
+     * @param identity The impersonated email, or "default"
+     * @param operation Short name of the call for logging
+     */
+    <T> T call(String identity, String operation, DriveCall<T> call) throws IOException {
+        CircuitBreaker breaker = breakers.computeIfAbsent(identity, id -> new CircuitBreaker());
+        long waitNanos = breaker.tryAcquire();
+        if (waitNanos > 0) {
+            rejected.incrementAndGet();
+            Duration retryAfter = Duration.ofNanos(waitNanos);
+            throw new DriveUnavailableException("Google Drive is unavailable for " + identity
+                + ", retry in " + Math.max(1, retryAfter.toSeconds()) + "s", retryAfter);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = call.execute();
+                breaker.onSuccess();
+                return result;
+            } catch (RuntimeException e) {
+                // Also releases a half-open trial, which would otherwise block the identity for good
+                breaker.onFailure();
+                throw e;
+            } catch (IOException e) {
+                if (!isRetryable(e)) {
+                    // The request itself was wrong (404, 400...), Drive is healthy
+                    breaker.onSuccess();
+                    throw e;
+                }
+                long retryAfter = retryAfterMillis(e);
+                if (retryAfter > maxDelayMillis) {
+                    breaker.onFailure();
+                    throw new DriveUnavailableException("Google Drive asked to retry " + operation + " for "
+                        + identity + " in " + Math.max(1, retryAfter / 1000) + "s", Duration.ofMillis(retryAfter), e);
+                }
+                if (attempt >= maxAttempts) {
+                    breaker.onFailure();
+                    throw e;
+                }
+                long delay = backoffMillis(attempt, e);
+                retries.incrementAndGet();
+                logger.warn("Drive {} for {} failed (attempt {}/{}), retrying in {} ms: {}",
+                    operation, identity, attempt, maxAttempts, delay, e.getMessage());
+                try {
+                    sleeper.sleep(delay);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    breaker.onFailure();
+                    throw new InterruptedIOException("Interrupted while backing off Drive " + operation);
+                }
+            }
+        }
+    }
+
+    /**
+     * Breaker state and counters per identity
+     */
+    Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("retries", retries.get());
+        stats.put("rejected", rejected.get());
+        Map<String, Object> identities = new HashMap<>();
+        breakers.forEach((identity, breaker) -> identities.put(identity, breaker.snapshot()));
+        stats.put("breakers", identities);
+        return stats;
+    }
+
+    BreakerState getState(String identity) {
+        CircuitBreaker breaker = breakers.get(identity);
+        return breaker == null ? BreakerState.CLOSED : breaker.currentState();
+    }
+
+    static boolean isRetryable(IOException e) {
+        if (e instanceof DriveUnavailableException) {
+            return false;
+        }
+        if (!(e instanceof HttpResponseException)) {
+            return true; // connection reset, timeout...
+        }
+        int status = ((HttpResponseException) e).getStatusCode();
+        if (status == 429 || status >= 500) {
+            return true;
+        }
+        if (status == 403 && e instanceof GoogleJsonResponseException json && json.getDetails() != null) {
+            GoogleJsonError details = json.getDetails();
+            return details.getErrors() != null && details.getErrors().stream()
+                .anyMatch(error -> "rateLimitExceeded".equals(error.getReason())
+                    || "userRateLimitExceeded".equals(error.getReason()));
+        }
+        return false;
+    }
+
+    /**
+     * Full jitter exponential backoff, never shorter than Drive's Retry-After
+     * (which {@link #call} only waits out up to the max delay)
+     */
+    long backoffMillis(int attempt, IOException e) {
+        long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        return Math.max(delay, retryAfterMillis(e));
+    }
+
+    static long retryAfterMillis(IOException e) {
+        if (!(e instanceof HttpResponseException http) || http.getHeaders() == null) {
+            return 0;
+        }
+        String retryAfter = http.getHeaders().getRetryAfter();
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException notSeconds) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+            } catch (DateTimeParseException notDate) {
+                return 0;
+            }
+        }
+    }
+
+    private class CircuitBreaker {
+
+        private BreakerState state = BreakerState.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private boolean trialInFlight;
+
+        /**
+         * @return 0 if the call may proceed, otherwise nanos until a trial call is allowed
+         */
+        synchronized long tryAcquire() {
+            if (state == BreakerState.OPEN) {
+                long elapsed = clock.getAsLong() - openedAt;
+                if (elapsed < openNanos) {
+                    return openNanos - elapsed;
+                }
+                state = BreakerState.HALF_OPEN;
+                trialInFlight = false;
+            }
+            if (state == BreakerState.HALF_OPEN) {
+                if (trialInFlight) {
+                    return Math.max(1, openNanos / 10);
+                }
+                trialInFlight = true;
+            }
+            return 0;
+        }
+
+        synchronized void onSuccess() {
+            state = BreakerState.CLOSED;
+            consecutiveFailures = 0;
+            trialInFlight = false;
+        }
+
+        synchronized void onFailure() {
+            consecutiveFailures++;
+            if (state == BreakerState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+                if (state != BreakerState.OPEN) {
+                    logger.warn("Opening Drive circuit breaker after {} consecutive failures", consecutiveFailures);
+                }
+                state = BreakerState.OPEN;
+                openedAt = clock.getAsLong();
+                trialInFlight = false;
+            }
+        }
+
+        synchronized BreakerState currentState() {
+            if (state == BreakerState.OPEN && clock.getAsLong() - openedAt >= openNanos) {
+                return BreakerState.HALF_OPEN;
+            }
+            return state;
+        }
+
+        synchronized Map<String, Object> snapshot() {
+            Map<String, Object> snapshot = new HashMap<>();
+            snapshot.put("state", currentState().name());
+            snapshot.put("consecutiveFailures", consecutiveFailures);
+            return snapshot;
+        }
+    }
+}
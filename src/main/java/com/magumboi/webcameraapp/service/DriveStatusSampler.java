@@ -0,0 +1,281 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.client.http.HttpResponseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples Drive health and the upload stats in the background and publishes them as
+ * immutable snapshots, so the status endpoints answer from memory however often they are polled.
+ * Each sample checks that the default client holds a valid token, that the main folder is
+ * reachable, and how the recent uploads went (success rate and latency percentiles).
+ * With another storage backend only the storage and upload stats are sampled.
+ * A snapshot keeps its ETag until its content changes.
+ */
+@Service
+public class DriveStatusSampler {
+
+    private static final Logger logger = LoggerFactory.getLogger(DriveStatusSampler.class);
+    private static final double DEGRADED_SUCCESS_RATE = 0.9;
+    private static final int DEGRADED_MIN_UPLOADS = 5;
+
+    public enum State { PENDING, UP, DEGRADED, DOWN, NOT_CONFIGURED }
+
+    /**
+     * A published status body with the ETag and time of its last change
+     */
+    public record Snapshot(Map<String, Object> body, String etag, Instant lastModified) {
+    }
+
+    @Value("${google.drive.health.sample-interval:15s}")
+    private Duration sampleInterval;
+
+    @Value("${google.drive.health.probe-timeout:10s}")
+    private Duration probeTimeout;
+
+    // Only with the Google Drive backend
+    @Autowired(required = false)
+    private GoogleDriveService googleDriveService;
+
+    @Autowired
+    private PhotoStorage photoStorage;
+
+    @Autowired
+    private UploadSpoolService uploadSpoolService;
+
+    @Autowired
+    private UploadAdmissionService uploadAdmissionService;
+
+    @Autowired
+    private IdempotencyRegistry idempotencyRegistry;
+
+    @Autowired(required = false)
+    private UploadMetrics metrics = UploadMetrics.NOOP;
+
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private ScheduledExecutorService sampler;
+    private long version;
+    private volatile Snapshot driveStatus;
+    private volatile Snapshot impersonationStatus;
+
+    @PostConstruct
+    public void init() {
+        publish(pendingHealth());
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "drive-status-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = Math.max(1000, sampleInterval.toMillis());
+        sampler.scheduleWithFixedDelay(this::sample, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+    }
+
+    public Snapshot getDriveStatus() {
+        return driveStatus;
+    }
+
+    public Snapshot getImpersonationStatus() {
+        return impersonationStatus;
+    }
+
+    /**
+     * How long a snapshot stays current, for Cache-Control
+     */
+    public Duration getSampleInterval() {
+        return sampleInterval;
+    }
+
+    private void sample() {
+        try {
+            publish(probe());
+        } catch (Exception e) {
+            logger.warn("Failed to sample Drive status: {}", e.toString());
+        }
+    }
+
+    private Map<String, Object> pendingHealth() {
+        Map<String, Object> health = new LinkedHashMap<>();
+        health.put("state", (photoStorage.isConfigured() ? State.PENDING : State.NOT_CONFIGURED).name());
+        health.put("recentUploads", recentUploads());
+        return health;
+    }
+
+    /**
+     * Probes Drive from this thread; the folder probe runs on the Drive executor, bounded by the probe timeout
+     */
+    private Map<String, Object> probe() {
+        if (!photoStorage.isConfigured()) {
+            return pendingHealth();
+        }
+        if (googleDriveService == null) {
+            Map<String, Object> recent = recentUploads();
+            Map<String, Object> health = new LinkedHashMap<>();
+            health.put("state", uploadState(recent).name());
+            health.put("recentUploads", recent);
+            return health;
+        }
+        long start = System.nanoTime();
+        Map<String, Object> auth = new LinkedHashMap<>();
+        Map<String, Object> folder = new LinkedHashMap<>();
+        try {
+            googleDriveService.checkCredentials();
+            auth.put("ok", true);
+        } catch (Exception e) {
+            auth.put("ok", false);
+            auth.put("error", describe(e));
+        }
+        if (Boolean.TRUE.equals(auth.get("ok"))) {
+            try {
+                googleDriveService.checkFolder(probeTimeout);
+                folder.put("reachable", true);
+            } catch (Exception e) {
+                folder.put("reachable", false);
+                folder.put("error", describe(e));
+            }
+        }
+        Map<String, Object> recent = recentUploads();
+
+        State state = !Boolean.TRUE.equals(auth.get("ok")) || !Boolean.TRUE.equals(folder.get("reachable"))
+            ? State.DOWN : uploadState(recent);
+
+        Map<String, Object> health = new LinkedHashMap<>();
+        health.put("state", state.name());
+        health.put("auth", auth);
+        if (!folder.isEmpty()) {
+            health.put("folder", folder);
+        }
+        health.put("probeMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        health.put("recentUploads", recent);
+        return health;
+    }
+
+    private static State uploadState(Map<String, Object> recent) {
+        if ((int) recent.get("uploads") >= DEGRADED_MIN_UPLOADS
+                && (double) recent.get("successRate") < DEGRADED_SUCCESS_RATE) {
+            return State.DEGRADED;
+        }
+        return State.UP;
+    }
+
+    private Map<String, Object> recentUploads() {
+        UploadLatencyWindow.Summary summary = metrics.getRecentUploads();
+        Map<String, Object> recent = new LinkedHashMap<>();
+        recent.put("uploads", summary.uploads());
+        recent.put("failures", summary.failures());
+        recent.put("successRate", Math.round(summary.successRate() * 1000) / 1000.0);
+        recent.put("p50Millis", summary.p50Millis());
+        recent.put("p95Millis", summary.p95Millis());
+        recent.put("p99Millis", summary.p99Millis());
+        return recent;
+    }
+
+    /**
+     * Rebuilds both status bodies around the given health section and publishes the ones that changed
+     */
+    private synchronized void publish(Map<String, Object> health) {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("configured", photoStorage.isConfigured());
+        status.put("storage", photoStorage.getName());
+        if (googleDriveService != null) {
+            status.put("folderId", googleDriveService.getFolderId());
+        }
+        status.put("health", health);
+        if (googleDriveService != null) {
+            status.put("folderCache", googleDriveService.getFolderCacheStats());
+            status.put("metadataCache", googleDriveService.getMetadataCacheStats());
+            status.put("dedup", googleDriveService.getDedupStats());
+            status.put("executor", googleDriveService.getExecutorStats());
+            status.put("warmup", googleDriveService.getWarmupStats());
+        }
+        status.put("spool", uploadSpoolService.getStats());
+        status.put("admission", uploadAdmissionService.getStats());
+        Map<String, Object> idempotency = new LinkedHashMap<>();
+        idempotency.put("size", idempotencyRegistry.size());
+        idempotency.put("started", idempotencyRegistry.getStarted());
+        idempotency.put("replayed", idempotencyRegistry.getReplayed());
+        status.put("idempotency", idempotency);
+        status.put("service", googleDriveService != null ? "Google Drive" : photoStorage.getName());
+
+        Map<String, Object> impersonation = new LinkedHashMap<>();
+        if (googleDriveService != null) {
+            impersonation.put("impersonationEnabled", googleDriveService.isImpersonationEnabled());
+            impersonation.put("domain", googleDriveService.getImpersonationDomain());
+            impersonation.put("defaultUser", googleDriveService.getDefaultUserEmail());
+            impersonation.put("configured", googleDriveService.isConfigured());
+            if (health.containsKey("auth")) {
+                impersonation.put("auth", health.get("auth"));
+            }
+            impersonation.put("clientCache", googleDriveService.getClientCacheStats());
+        } else {
+            // Impersonation is a Drive feature
+            impersonation.put("impersonationEnabled", false);
+            impersonation.put("configured", false);
+            impersonation.put("storage", photoStorage.getName());
+        }
+
+        Instant now = Instant.now();
+        driveStatus = next(driveStatus, status, now);
+        impersonationStatus = next(impersonationStatus, impersonation, now);
+    }
+
+    /**
+     * @return The previous snapshot when the body did not change, otherwise a new one with a new ETag
+     */
+    Snapshot next(Snapshot previous, Map<String, Object> body, Instant now) {
+        Map<String, Object> frozen = immutableCopy(body);
+        if (previous != null && previous.body().equals(frozen)) {
+            return previous;
+        }
+        return new Snapshot(frozen, "\"" + bootId + "-" + (++version) + "\"", now);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T immutableCopy(T value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            map.forEach((key, each) -> copy.put(key, immutableCopy(each)));
+            return (T) Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            list.forEach(each -> copy.add(immutableCopy(each)));
+            return (T) Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    /**
+     * Short reason for a failed probe: the HTTP status for Drive errors, otherwise the message
+     */
+    static String describe(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpResponseException http) {
+                return "HTTP " + http.getStatusCode() + " " + http.getStatusMessage();
+            }
+        }
+        return error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,30 @@
+package com.magumboi.webcameraapp.service;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Thrown without calling Drive while the circuit breaker for an identity is open,
+ * or when Drive asks to wait longer than the retry policy allows
+ */
+public class DriveUnavailableException extends IOException {
+
+    private final Duration retryAfter;
+
+    public DriveUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public DriveUnavailableException(String message, Duration retryAfter, Throwable cause) {
+        super(message, cause);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * How long until the breaker lets a trial call through, or Drive's Retry-After
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,132 @@
+package com.magumboi.webcameraapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+
+/**
+ * Startup warm-up of the Drive clients: named steps (token refresh, connection
+ * preconnect, folder prefetch) run in order under one overall deadline, so the
+ * first uploads do not pay for them. The outcome backs the readiness health check.
+ * A failed or timed-out warm-up can be run again.
+ */
+class DriveWarmup {
+
+    private static final Logger logger = LoggerFactory.getLogger(DriveWarmup.class);
+
+    enum Status { PENDING, WARMING, WARM, FAILED }
+
+    @FunctionalInterface
+    interface Step {
+        void run() throws Exception;
+    }
+
+    private final Duration timeout;
+    private final LongSupplier clock;
+    private final ExecutorService runner = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "drive-warmup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Status status = Status.PENDING;
+    private volatile String failedStep;
+    private volatile String error;
+    private volatile long tookMillis;
+    private volatile int attempts;
+
+    DriveWarmup(Duration timeout) {
+        this(timeout, System::nanoTime);
+    }
+
+    DriveWarmup(Duration timeout, LongSupplier clock) {
+        this.timeout = timeout;
+        this.clock = clock;
+    }
+
+    /**
+     * Runs the steps in order until one fails or the deadline passes
+     * @return true if every step completed in time
+     */
+    synchronized boolean run(Map<String, Step> steps) {
+        status = Status.WARMING;
+        attempts++;
+        long start = clock.getAsLong();
+        long deadline = start + timeout.toNanos();
+        for (Map.Entry<String, Step> step : steps.entrySet()) {
+            String failure = runStep(step.getValue(), deadline);
+            if (failure != null) {
+                failedStep = step.getKey();
+                error = failure;
+                tookMillis = TimeUnit.NANOSECONDS.toMillis(clock.getAsLong() - start);
+                status = Status.FAILED;
+                logger.warn("Drive warm-up failed at {}: {}", step.getKey(), failure);
+                return false;
+            }
+        }
+        failedStep = null;
+        error = null;
+        tookMillis = TimeUnit.NANOSECONDS.toMillis(clock.getAsLong() - start);
+        status = Status.WARM;
+        logger.info("Drive warm-up completed in {} ms", tookMillis);
+        return true;
+    }
+
+    private String runStep(Step step, long deadline) {
+        long remaining = deadline - clock.getAsLong();
+        if (remaining <= 0) {
+            return "timed out after " + timeout.toMillis() + " ms";
+        }
+        Future<?> future = runner.submit(() -> {
+            step.run();
+            return null;
+        });
+        try {
+            future.get(remaining, TimeUnit.NANOSECONDS);
+            return null;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            return "timed out after " + timeout.toMillis() + " ms";
+        } catch (ExecutionException e) {
+            return String.valueOf(e.getCause());
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        }
+    }
+
+    void shutdown() {
+        runner.shutdownNow();
+    }
+
+    Status getStatus() {
+        return status;
+    }
+
+    boolean isWarm() {
+        return status == Status.WARM;
+    }
+
+    Map<String, Object> getDetails() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("status", status.name().toLowerCase());
+        details.put("attempts", attempts);
+        details.put("tookMillis", tookMillis);
+        if (failedStep != null) {
+            details.put("failedStep", failedStep);
+            details.put("error", error);
+        }
+        return details;
+    }
+}
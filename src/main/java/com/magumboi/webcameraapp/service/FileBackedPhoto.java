@@ -0,0 +1,18 @@
+package com.magumboi.webcameraapp.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.nio.file.Path;
+
+/**
+ * An uploaded photo whose bytes already sit in a local file, from {@link #getOffset()} for
+ * {@link #getSize()} bytes, so a storage backend can copy them file to file
+ */
+public interface FileBackedPhoto extends MultipartFile {
+
+    Path getPath();
+
+    default long getOffset() {
+        return 0;
+    }
+}
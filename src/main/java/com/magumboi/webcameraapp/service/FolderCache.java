@@ -0,0 +1,172 @@
+package com.magumboi.webcameraapp.service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * TTL and size bounded cache of resolved folder IDs keyed by
+ * (drive identity, parent folder, folder name).
+ * Concurrent resolutions of the same key share a single in-flight lookup,
+ * so a burst of uploads for a new user creates exactly one folder.
+ */
+class FolderCache {
+
+    /**
+     * Loads (finds or creates) a folder ID on a cache miss
+     */
+    @FunctionalInterface
+    interface FolderLoader {
+        String load() throws Exception;
+    }
+
+    record Key(String identity, String parentFolderId, String folderName) {
+    }
+
+    private record Entry(String folderId, long expiresAtNanos) {
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Key, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    FolderCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    FolderCache(int maxSize, Duration ttl, LongSupplier clock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the cached folder ID or resolves it with the loader.
+     * Only one loader runs per key at a time; other callers wait for its result.
+     * Failed or null loads are not cached.
+     */
+    String get(Key key, FolderLoader loader) throws Exception {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expiresAtNanos() - clock.getAsLong() > 0) {
+                hits.incrementAndGet();
+                return entry.folderId();
+            }
+            entries.remove(key, entry);
+        }
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            hits.incrementAndGet();
+            return await(existing);
+        }
+
+        misses.incrementAndGet();
+        try {
+            String folderId = loader.load();
+            if (folderId != null) {
+                put(key, folderId);
+            }
+            mine.complete(folderId);
+            return folderId;
+        } catch (Exception e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    /**
+     * @return The cached folder ID, or null on a miss; nothing is loaded
+     */
+    String peek(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expiresAtNanos() - clock.getAsLong() <= 0) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.folderId();
+    }
+
+    /**
+     * Drops a cached folder ID, e.g. after Drive answered 404 for it
+     */
+    void invalidate(Key key, String folderId) {
+        Entry entry = entries.get(key);
+        if (entry != null && Objects.equals(entry.folderId(), folderId)) {
+            entries.remove(key, entry);
+        }
+    }
+
+    void put(Key key, String folderId) {
+        entries.put(key, new Entry(folderId, clock.getAsLong() + ttlNanos));
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    private void evict() {
+        long now = clock.getAsLong();
+        entries.entrySet().removeIf(e -> {
+            boolean expired = e.getValue().expiresAtNanos() - now <= 0;
+            if (expired) {
+                evictions.incrementAndGet();
+            }
+            return expired;
+        });
+        while (entries.size() > maxSize) {
+            entries.entrySet().stream()
+                .min(Comparator.comparingLong(e -> e.getValue().expiresAtNanos()))
+                .ifPresent(oldest -> {
+                    if (entries.remove(oldest.getKey(), oldest.getValue())) {
+                        evictions.incrementAndGet();
+                    }
+                });
+        }
+    }
+
+    private static String await(CompletableFuture<String> future) throws Exception {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getEvictions() {
+        return evictions.get();
+    }
+}
@@ -1,39 +1,85 @@
 package com.magumboi.webcameraapp.service;
 
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.googleapis.media.MediaHttpUploader;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.client.http.HttpTransport;
 import com.google.api.client.http.InputStreamContent;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import com.google.api.client.http.json.JsonHttpContent;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.drive.Drive;
 import com.google.api.services.drive.DriveScopes;
 import com.google.api.services.drive.model.File;
-import com.google.auth.http.HttpCredentialsAdapter;
+import com.google.api.services.drive.model.FileList;
+import com.google.auth.Credentials;
+import com.google.auth.oauth2.AccessToken;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.auth.oauth2.OAuth2Credentials;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import jakarta.annotation.PostConstruct;
-import java.io.ByteArrayInputStream;
+import jakarta.annotation.PreDestroy;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
-public class GoogleDriveService {
+@ConditionalOnProperty(name = "storage.backend", havingValue = "google-drive", matchIfMissing = true)
+public class GoogleDriveService implements PhotoStorage {
 
     private static final Logger logger = LoggerFactory.getLogger(GoogleDriveService.class);
     private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
     private static final String APPLICATION_NAME = "Camera to Google Drive Service";
+    // Drive accepts at most 100 calls per batch request
+    private static final int MAX_BATCH_CALLS = 100;
+    // appProperty that lets a retried photo create find the file an earlier attempt created
+    static final String UPLOAD_TAG_PROPERTY = "uploadTag";
 
     @Value("${google.drive.credentials.path}")
     private String credentialsPath;
@@ -41,6 +87,9 @@ public class GoogleDriveService {
     @Value("${google.drive.folder.id:}")
     private String folderId;
 
+    @Value("${google.drive.root-url:}")
+    private String rootUrl;
+
     @Value("${google.drive.enabled:true}")
     private boolean enabled;
 
@@ -53,9 +102,123 @@ public class GoogleDriveService {
     @Value("${google.drive.impersonation.default-user:}")
     private String defaultUserEmail;
 
+    @Value("${google.drive.impersonation.client-cache.max-size:100}")
+    private int clientCacheMaxSize;
+
+    @Value("${google.drive.folder-cache.max-size:1000}")
+    private int folderCacheMaxSize;
+
+    @Value("${google.drive.folder-cache.ttl:PT6H}")
+    private Duration folderCacheTtl;
+
+    @Value("${google.drive.executor.mode:fixed}")
+    private String executorMode;
+
+    @Value("${google.drive.executor.threads:5}")
+    private int executorThreads;
+
+    @Value("${google.drive.executor.max-concurrent:5}")
+    private int executorMaxConcurrent;
+
+    @Value("${google.drive.upload.resumable:true}")
+    private boolean resumableUpload;
+
+    @Value("${google.drive.upload.chunk-size:1MB}")
+    private DataSize uploadChunkSize;
+
+    @Value("${google.drive.retry.initial-backoff:500ms}")
+    private Duration retryInitialBackoff;
+
+    @Value("${google.drive.retry.max-elapsed:30s}")
+    private Duration retryMaxElapsed;
+
+    @Value("${upload.processing.threads:2}")
+    private int processingThreads;
+
+    @Value("${upload.dedup.enabled:false}")
+    private boolean dedupEnabled;
+
+    @Value("${upload.dedup.max-entries:10000}")
+    private int dedupMaxEntries;
+
+    @Value("${upload.dedup.ttl:P7D}")
+    private Duration dedupTtl;
+
+    @Value("${upload.dedup.store:}")
+    private String dedupStore;
+
+    @Value("${upload.dedup.verify:true}")
+    private boolean dedupVerify;
+
+    @Value("${google.drive.direct-upload.max-sessions:1000}")
+    private int directUploadMaxSessions;
+
+    @Value("${google.drive.direct-upload.session-ttl:PT24H}")
+    private Duration directUploadSessionTtl;
+
+    @Autowired(required = false)
+    private PhotoProcessor photoProcessor;
+
+    @Autowired(required = false)
+    private UploadMetrics metrics = UploadMetrics.NOOP;
+
+    @Value("${google.drive.batch.parallelism:4}")
+    private int batchParallelism;
+
+    @Value("${google.drive.resilience.max-attempts:4}")
+    private int resilienceMaxAttempts;
+
+    @Value("${google.drive.resilience.base-delay:200ms}")
+    private Duration resilienceBaseDelay;
+
+    @Value("${google.drive.resilience.max-delay:10s}")
+    private Duration resilienceMaxDelay;
+
+    @Value("${google.drive.resilience.breaker.failure-threshold:5}")
+    private int breakerFailureThreshold;
+
+    @Value("${google.drive.resilience.breaker.open-duration:30s}")
+    private Duration breakerOpenDuration;
+
+    @Value("${google.drive.warmup.enabled:true}")
+    private boolean warmupEnabled;
+
+    @Value("${google.drive.warmup.timeout:30s}")
+    private Duration warmupTimeout;
+
+    @Value("${google.drive.warmup.connections:2}")
+    private int warmupConnections;
+
+    @Value("${google.drive.token-refresh.interval:60s}")
+    private Duration tokenRefreshInterval;
+
+    @Value("${google.drive.metadata.cache.max-size:10000}")
+    private int metadataCacheMaxSize;
+
+    @Value("${google.drive.metadata.cache.ttl:10m}")
+    private Duration metadataCacheTtl;
+
+    @Value("${google.drive.metadata.page-size:200}")
+    private int metadataPageSize;
+
     private Drive driveService;
-    private ExecutorService executor;
+    private DriveExecutor executor;
+    private ExecutorService processingExecutor;
     private GoogleCredentials baseCredentials;
+    private HttpTransport httpTransport;
+    private DriveClientCache clientCache;
+    private FolderCache folderCache;
+    private MetadataCache metadataCache;
+    // User folders under the main folder that metadata requests may read from
+    private final Set<String> photoFolderIds = ConcurrentHashMap.newKeySet();
+    private DriveResilience resilience;
+    private DedupIndex dedupIndex;
+    private DirectUploadSessions directUploads;
+    private HttpTransport sessionTransport;
+    private DriveWarmup warmup;
+    private ScheduledExecutorService maintenance;
+    private final AtomicLong tokenRefreshes = new AtomicLong();
+    private final AtomicLong tokenRefreshFailures = new AtomicLong();
 
     @PostConstruct
     public void init() {
@@ -70,16 +233,50 @@ public class GoogleDriveService {
                 new FileInputStream(credentialsPath)
             ).createScoped(Collections.singleton(DriveScopes.DRIVE_FILE));
 
+            // One transport (trust store + connection pool) shared by every Drive client
+            httpTransport = GoogleNetHttpTransport.newTrustedTransport();
+            sessionTransport = new ApacheHttpTransport();
+            directUploads = new DirectUploadSessions(directUploadMaxSessions, directUploadSessionTtl);
+            clientCache = new DriveClientCache(clientCacheMaxSize, this::createDriveServiceForUser);
+            folderCache = new FolderCache(folderCacheMaxSize, folderCacheTtl);
+            metadataCache = new MetadataCache(metadataCacheMaxSize, metadataCacheTtl);
+            resilience = new DriveResilience(resilienceMaxAttempts, resilienceBaseDelay, resilienceMaxDelay,
+                breakerFailureThreshold, breakerOpenDuration);
+
             // Create default Drive service (either with impersonation or service account)
             if (impersonationEnabled && defaultUserEmail != null && !defaultUserEmail.trim().isEmpty()) {
-                driveService = createDriveServiceForUser(defaultUserEmail.trim());
+                driveService = clientCache.get(defaultUserEmail.trim().toLowerCase());
                 logger.info("Google Drive service initialized with user impersonation for: {}", defaultUserEmail);
             } else {
                 driveService = createDriveServiceWithServiceAccount();
                 logger.info("Google Drive service initialized with service account");
             }
 
-            executor = Executors.newFixedThreadPool(5);
+            processingExecutor = Executors.newFixedThreadPool(processingThreads);
+            executor = new DriveExecutor(DriveExecutor.Mode.parse(executorMode), executorThreads, executorMaxConcurrent);
+            metrics.bindExecutor(executor);
+            metrics.bindCaches(clientCache, folderCache);
+            metrics.bindMetadataCache(metadataCache);
+            if (dedupEnabled) {
+                dedupIndex = new DedupIndex(dedupMaxEntries, dedupTtl,
+                    dedupStore == null || dedupStore.isBlank() ? null : Path.of(dedupStore));
+                metrics.bindDedup(dedupIndex);
+            }
+            logger.info("Drive calls run in {} mode with at most {} concurrent calls", 
+                executor.getMode(), executor.getMaxConcurrent());
+
+            // Warm up in the background and keep tokens fresh so no upload waits on a token exchange
+            warmup = new DriveWarmup(warmupTimeout);
+            maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "drive-maintenance");
+                thread.setDaemon(true);
+                return thread;
+            });
+            if (warmupEnabled) {
+                maintenance.execute(this::warmUp);
+            }
+            long refreshMillis = Math.max(1000, tokenRefreshInterval.toMillis());
+            maintenance.scheduleWithFixedDelay(this::maintain, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
             
             logger.info("Google Drive service initialized successfully");
         } catch (Exception e) {
@@ -88,130 +285,990 @@ public class GoogleDriveService {
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        if (maintenance != null) {
+            maintenance.shutdownNow();
+        }
+        if (warmup != null) {
+            warmup.shutdown();
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (processingExecutor != null) {
+            processingExecutor.shutdown();
+        }
+        if (sessionTransport != null) {
+            try {
+                sessionTransport.shutdown();
+            } catch (IOException e) {
+                logger.warn("Failed to shut down upload session transport", e);
+            }
+        }
+        if (dedupIndex != null) {
+            try {
+                dedupIndex.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close deduplication store", e);
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "google-drive";
+    }
+
+    @Override
+    public Mono<String> uploadPhoto(MultipartFile photo, String userName, String userEmail,
+                                    UploadProgressListener progressListener) {
+        return uploadPhotoToGoogleDrive(photo, userName, userEmail, progressListener);
+    }
+
+    @Override
+    public Mono<List<PhotoUploadResult>> uploadPhotos(List<MultipartFile> photos, String userName, String userEmail) {
+        return uploadPhotosToGoogleDrive(photos, userName, userEmail);
+    }
+
+    @Override
+    public Mono<String> resolveUserFolder(String userName, String userEmail) {
+        return Mono.fromFuture(() -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return resolveTarget(userName, userEmail).folderId;
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to resolve user folder: " + e.getMessage(), e);
+            }
+        }, executor));
+    }
+
     public Mono<String> uploadPhotoToGoogleDrive(MultipartFile photo, String userName) {
         return uploadPhotoToGoogleDrive(photo, userName, null);
     }
 
     public Mono<String> uploadPhotoToGoogleDrive(MultipartFile photo, String userName, String userEmail) {
-        return Mono.fromFuture(CompletableFuture.supplyAsync(() -> {
+        return uploadPhotoToGoogleDrive(photo, userName, userEmail, UploadProgressListener.NONE);
+    }
+
+    public Mono<String> uploadPhotoToGoogleDrive(MultipartFile photo, String userName, String userEmail,
+                                                 UploadProgressListener progressListener) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = metrics.start();
+            return processPhoto(photo).flatMap(processed -> Mono.fromFuture(CompletableFuture.supplyAsync(() -> {
+                try {
+                    UploadTarget target = resolveTarget(userName, userEmail);
+                    return uploadToTarget(target, processed, null, progressListener).getId();
+                } catch (IOException e) {
+                    logger.error("Failed to upload photo to Google Drive", e);
+                    throw new RuntimeException("Failed to upload photo to Google Drive: " + e.getMessage(), e);
+                }
+            }, executor)))
+                .doOnSuccess(fileId -> metrics.recordSuccess(sample))
+                .doOnError(error -> metrics.recordFailure(sample, error));
+        });
+    }
+
+    /**
+     * Uploads several photos for the same user.
+     * The Drive client and the user folder are resolved once for the whole batch,
+     * then the photos are uploaded with bounded parallelism.
+     * Media uploads cannot be combined into a Drive batch request, so each photo is
+     * still its own files.create call.
+     * @return One result per photo, in the order given
+     */
+    public Mono<List<PhotoUploadResult>> uploadPhotosToGoogleDrive(List<MultipartFile> photos, String userName,
+                                                                   String userEmail) {
+        return Mono.fromFuture(() -> CompletableFuture.supplyAsync(() -> {
             try {
-                // Get the appropriate Drive service (impersonated or default)
-                Drive targetDriveService = getDriveServiceForUser(userEmail);
-                
-                // Generate timestamp for filename
-                String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
-                
-                // Create filename with user name if provided
-                String filename;
-                String sanitizedUserName = null;
-                if (userName != null && !userName.trim().isEmpty()) {
-                    // Sanitize userName for filename (remove invalid characters)
-                    sanitizedUserName = userName.trim().replaceAll("[<>:\"/\\\\|?*]", "");
-                    if (sanitizedUserName.length() > 30) {
-                        sanitizedUserName = sanitizedUserName.substring(0, 30);
-                    }
-                    filename = sanitizedUserName + "-camera-photo-" + timestamp + ".jpg";
-                } else {
-                    filename = "camera-photo-" + timestamp + ".jpg";
+                return resolveTarget(userName, userEmail);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to resolve upload target: " + e.getMessage(), e);
+            }
+        }, executor))
+            .flatMapMany(target -> Flux.range(0, photos.size())
+                .flatMapSequential(i -> processPhoto(photos.get(i))
+                    .flatMap(processed -> Mono.fromFuture(() -> CompletableFuture.supplyAsync(
+                        () -> uploadBatchItem(target, processed, photos.size() > 1 ? String.valueOf(i + 1) : null),
+                        executor))), batchParallelism))
+            .collectList();
+    }
+
+    /**
+     * Runs the photo through the processing stage on its own bounded pool,
+     * so CPU-heavy decoding never occupies Drive I/O threads.
+     * Falls back to the original photo if processing fails.
+     */
+    private Mono<MultipartFile> processPhoto(MultipartFile photo) {
+        if (photoProcessor == null) {
+            return Mono.just(photo);
+        }
+        return Mono.fromFuture(() -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return metrics.time(UploadMetrics.Stage.PROCESS, () -> photoProcessor.process(photo));
+            } catch (Exception e) {
+                logger.warn("Failed to process photo {}, uploading it unchanged", photo.getOriginalFilename(), e);
+                return photo;
+            }
+        }, processingExecutor));
+    }
+
+    private PhotoUploadResult uploadBatchItem(UploadTarget target, MultipartFile photo, String suffix) {
+        Timer.Sample sample = metrics.start();
+        try {
+            File uploadedFile = uploadToTarget(target, photo, suffix, UploadProgressListener.NONE);
+            metrics.recordSuccess(sample);
+            return new PhotoUploadResult(photo.getOriginalFilename(), uploadedFile.getId(), null);
+        } catch (Exception e) {
+            metrics.recordFailure(sample, e);
+            logger.error("Failed to upload photo {} of batch to Google Drive", photo.getOriginalFilename(), e);
+            return new PhotoUploadResult(photo.getOriginalFilename(), null, e.getMessage());
+        }
+    }
+
+    /**
+     * Drive client, identity and folder that a user's photos are uploaded to
+     */
+    private static class UploadTarget {
+        final Drive drive;
+        final String impersonatedEmail;
+        final String userEmail;
+        final String sanitizedUserName;
+        volatile String folderId;
+
+        UploadTarget(Drive drive, String impersonatedEmail, String userEmail, String sanitizedUserName, String folderId) {
+            this.drive = drive;
+            this.impersonatedEmail = impersonatedEmail;
+            this.userEmail = userEmail;
+            this.sanitizedUserName = sanitizedUserName;
+            this.folderId = folderId;
+        }
+    }
+
+    private UploadTarget resolveTarget(String userName, String userEmail) throws IOException {
+        // Get the appropriate Drive service (impersonated or default)
+        String impersonatedEmail = resolveImpersonatedEmail(userEmail);
+        Drive targetDriveService = metrics.time(UploadMetrics.Stage.CLIENT,
+            () -> getDriveServiceForUser(impersonatedEmail));
+        String sanitizedUserName = sanitizeUserName(userName);
+        
+        // Get or create user-specific folder
+        String targetFolderId = metrics.time(UploadMetrics.Stage.FOLDER,
+            () -> getUserFolder(sanitizedUserName, targetDriveService, impersonatedEmail));
+        return new UploadTarget(targetDriveService, impersonatedEmail, userEmail, sanitizedUserName, targetFolderId);
+    }
+
+    /**
+     * Uploads the photo unless the same content was already uploaded to the target folder,
+     * in which case the existing Drive file is returned (only its ID is set)
+     */
+    private File uploadToTarget(UploadTarget target, MultipartFile photo, String suffix,
+                                UploadProgressListener progressListener) throws IOException {
+        if (dedupIndex == null) {
+            return createInTarget(target, photo, suffix, progressListener);
+        }
+        String contentHash = metrics.time(UploadMetrics.Stage.HASH, () -> DedupIndex.contentHash(photo));
+        DedupIndex.Key key = dedupKey(contentHash, target.folderId);
+        String existingId = dedupIndex.get(key);
+        if (existingId != null) {
+            if (!dedupVerify || existsInDrive(target, existingId)) {
+                logger.info("Photo {} is identical to Drive file {}, skipping upload",
+                    photo.getOriginalFilename(), existingId);
+                metrics.recordDuplicate(photo.getSize());
+                progressListener.onProgress(photo.getSize(), photo.getSize());
+                return new File().setId(existingId);
+            }
+            dedupIndex.invalidate(key, existingId);
+        }
+
+        File uploadedFile = createInTarget(target, photo, suffix, progressListener);
+        // The folder may have been re-resolved during the upload
+        dedupIndex.put(dedupKey(contentHash, target.folderId), uploadedFile.getId());
+        return uploadedFile;
+    }
+
+    /**
+     * Name, description and parent folder (user's folder or main folder) of a new photo
+     */
+    private File photoMetadata(UploadTarget target, String suffix, String contentType) {
+        // Generate timestamp for filename
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+        String filename = buildFilename(target.sanitizedUserName, timestamp, suffix, extensionFor(contentType));
+
+        File fileMetadata = new File();
+        fileMetadata.setName(filename);
+        String description = "Photo taken from web camera at " +
+            LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"));
+        if (target.userEmail != null && !target.userEmail.trim().isEmpty()) {
+            description += " (uploaded to: " + target.userEmail + ")";
+        }
+        fileMetadata.setDescription(description);
+
+        if (target.folderId != null && !target.folderId.trim().isEmpty()) {
+            fileMetadata.setParents(Collections.singletonList(target.folderId));
+        }
+        return fileMetadata;
+    }
+
+    private static DedupIndex.Key dedupKey(String contentHash, String targetFolderId) {
+        return new DedupIndex.Key(contentHash, targetFolderId == null ? "" : targetFolderId);
+    }
+
+    /**
+     * Whether a previously uploaded file is still there and not in the trash
+     */
+    private boolean existsInDrive(UploadTarget target, String fileId) throws IOException {
+        try {
+            File file = resilience.call(driveIdentity(target.impersonatedEmail), "files.get",
+                () -> target.drive.files().get(fileId).setFields("id,trashed").execute());
+            return !Boolean.TRUE.equals(file.getTrashed());
+        } catch (GoogleJsonResponseException e) {
+            if (e.getStatusCode() == 404) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    private File createInTarget(UploadTarget target, MultipartFile photo, String suffix,
+                                UploadProgressListener progressListener) throws IOException {
+        String userEmail = target.userEmail;
+        String targetFolderId = target.folderId;
+        File fileMetadata = photoMetadata(target, suffix, photo.getContentType());
+
+        // Upload file using the target Drive service
+        String identity = driveIdentity(target.impersonatedEmail);
+        File uploadedFile;
+        try {
+            uploadedFile = createTagged(target.drive, identity, fileMetadata, photo, progressListener);
+        } catch (GoogleJsonResponseException e) {
+            if (e.getStatusCode() != 404 || target.sanitizedUserName == null) {
+                throw e;
+            }
+            // The cached user folder was deleted in Drive: forget it and resolve again
+            logger.warn("Folder {} for user {} no longer exists, resolving again", 
+                targetFolderId, target.sanitizedUserName);
+            folderCache.invalidate(folderCacheKey(target.sanitizedUserName, target.impersonatedEmail), targetFolderId);
+            target.folderId = getUserFolder(target.sanitizedUserName, target.drive, target.impersonatedEmail);
+            if (target.folderId != null && !target.folderId.trim().isEmpty()) {
+                fileMetadata.setParents(Collections.singletonList(target.folderId));
+            }
+            uploadedFile = createTagged(target.drive, identity, fileMetadata, photo, progressListener);
+        }
+
+        String logMessage = "Photo uploaded successfully to Google Drive: {} (ID: {})";
+        if (userEmail != null && !userEmail.trim().isEmpty()) {
+            logMessage += " for user: " + userEmail;
+        }
+        logger.info(logMessage, uploadedFile.getName(), uploadedFile.getId());
+        
+        return uploadedFile;
+    }
+
+    /**
+     * Creates the photo with retries, tagging it so a retry first looks for the file an earlier
+     * attempt may have created (e.g. a read timeout after Drive stored it) instead of uploading again
+     */
+    File createTagged(Drive drive, String identity, File fileMetadata, MultipartFile photo,
+                      UploadProgressListener progressListener) throws IOException {
+        String tag = UUID.randomUUID().toString();
+        fileMetadata.setAppProperties(Map.of(UPLOAD_TAG_PROPERTY, tag));
+        AtomicBoolean attempted = new AtomicBoolean();
+        return resilience.call(identity, "files.create", () -> {
+            if (attempted.getAndSet(true)) {
+                File earlier = findByUploadTag(drive, tag);
+                if (earlier != null) {
+                    logger.info("Photo {} was stored by an earlier attempt, not uploading it again", earlier.getId());
+                    return earlier;
                 }
-                
-                // Get or create user-specific folder
-                String targetFolderId = getUserFolder(sanitizedUserName, targetDriveService);
-                
-                // Create file metadata
-                File fileMetadata = new File();
-                fileMetadata.setName(filename);
-                String description = "Photo taken from web camera at " + 
-                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss"));
-                if (userEmail != null && !userEmail.trim().isEmpty()) {
-                    description += " (uploaded to: " + userEmail + ")";
+            }
+            return createFile(drive, fileMetadata, photo, progressListener);
+        });
+    }
+
+    private File findByUploadTag(Drive drive, String tag) throws IOException {
+        FileList found = drive.files().list()
+            .setQ("appProperties has { key='" + UPLOAD_TAG_PROPERTY + "' and value='" + tag + "' } and trashed=false")
+            .setFields("files(id,name,webViewLink,webContentLink)")
+            .setPageSize(1)
+            .execute();
+        return found.getFiles() == null || found.getFiles().isEmpty() ? null : found.getFiles().get(0);
+    }
+
+    /**
+     * Sanitizes a user name for use in file and folder names (remove invalid characters)
+     * @return The sanitized name (max 30 characters), or null if no name was given
+     */
+    static String sanitizeUserName(String userName) {
+        if (userName == null || userName.trim().isEmpty()) {
+            return null;
+        }
+        String sanitizedUserName = userName.trim().replaceAll("[<>:\"/\\\\|?*]", "");
+        if (sanitizedUserName.length() > 30) {
+            sanitizedUserName = sanitizedUserName.substring(0, 30);
+        }
+        return sanitizedUserName;
+    }
+
+    /**
+     * Creates filename with user name if provided
+     * @param suffix Distinguishes photos of one batch taken in the same second, may be null
+     * @param extension File extension without the dot
+     */
+    static String buildFilename(String sanitizedUserName, String timestamp, String suffix, String extension) {
+        String base = sanitizedUserName != null
+            ? sanitizedUserName + "-camera-photo-" + timestamp
+            : "camera-photo-" + timestamp;
+        return suffix != null ? base + "-" + suffix + "." + extension : base + "." + extension;
+    }
+
+    static String extensionFor(String contentType) {
+        if ("image/png".equals(contentType)) {
+            return "png";
+        }
+        if ("image/webp".equals(contentType)) {
+            return "webp";
+        }
+        return "jpg";
+    }
+
+    /**
+     * Content type sent to Drive: the photo's own image type, JPEG if unknown
+     */
+    static String mimeTypeFor(MultipartFile photo) {
+        String contentType = photo.getContentType();
+        return contentType != null && contentType.startsWith("image/") ? contentType : "image/jpeg";
+    }
+
+    /**
+     * Uploads the photo bytes with the given metadata.
+     * In resumable mode the photo is sent in chunks; a dropped connection or 5xx
+     * resumes from the last offset Drive acknowledged instead of starting over.
+     */
+    File createFile(Drive targetDriveService, File fileMetadata, MultipartFile photo,
+                    UploadProgressListener progressListener) throws IOException {
+        InputStreamContent mediaContent = metrics.time(UploadMetrics.Stage.CONTENT, () -> photoContent(photo));
+        Drive.Files.Create create = targetDriveService.files().create(fileMetadata, mediaContent)
+            .setFields("id,name,webViewLink,webContentLink");
+
+        MediaHttpUploader uploader = create.getMediaHttpUploader();
+        uploader.setDirectUploadEnabled(!resumableUpload);
+        if (resumableUpload) {
+            uploader.setChunkSize(chunkSizeBytes());
+        }
+        long totalBytes = photo.getSize();
+        uploader.setProgressListener(u -> progressListener.onProgress(u.getNumBytesUploaded(), totalBytes));
+
+        return metrics.time(UploadMetrics.Stage.EXECUTE, create::execute);
+    }
+
+    /**
+     * Drive requires chunk sizes in multiples of 256 KB
+     */
+    private int chunkSizeBytes() {
+        long unit = MediaHttpUploader.MINIMUM_CHUNK_SIZE;
+        long chunks = Math.max(1, (uploadChunkSize.toBytes() + unit - 1) / unit);
+        return Math.toIntExact(chunks * unit);
+    }
+
+    /**
+     * Streams the photo straight from the multipart part (memory or disk-spooled temp file)
+     * instead of copying it into a byte[]. Each call opens a fresh stream, so the
+     * content can be rebuilt when an upload is retried.
+     */
+    static InputStreamContent photoContent(MultipartFile photo) throws IOException {
+        InputStreamContent mediaContent = new InputStreamContent(mimeTypeFor(photo), photo.getInputStream());
+        mediaContent.setLength(photo.getSize());
+        return mediaContent;
+    }
+
+    // Overloaded method for backward compatibility
+    public Mono<String> uploadPhotoToGoogleDrive(MultipartFile photo) {
+        return uploadPhotoToGoogleDrive(photo, null);
+    }
+
+    @Override
+    public Mono<String> getFileInfo(String fileId) {
+        return getMetadata(List.of(fileId), null).map(found -> {
+            PhotoMetadata file = found.get(fileId);
+            if (file == null) {
+                throw new RuntimeException("Failed to get file info: File not found: " + fileId);
+            }
+            return String.format("File: %s, Size: %s bytes, Created: %s, View: %s",
+                file.name(),
+                file.size(),
+                file.createdTime(),
+                file.webViewLink());
+        });
+    }
+
+    /**
+     * Fetches the metadata of many photos as the given user, answering from the metadata cache
+     * where it can and fetching the rest in Drive batch requests of up to
+     * {@value #MAX_BATCH_CALLS} files each
+     * @return The metadata by file ID, in the order given; files that are missing, trashed, not
+     * visible to the user or outside the photo folders are left out
+     */
+    @Override
+    public Mono<Map<String, PhotoMetadata>> getMetadata(Collection<String> fileIds, String userEmail) {
+        if (!isConfigured()) {
+            return Mono.error(new IllegalStateException("Google Drive service is not configured"));
+        }
+        return Mono.defer(() -> {
+            String impersonatedEmail = resolveImpersonatedEmail(userEmail);
+            String identity = driveIdentity(impersonatedEmail);
+            Set<String> ids = new LinkedHashSet<>(fileIds);
+            Map<String, PhotoMetadata> cached = new HashMap<>();
+            List<String> uncached = new ArrayList<>();
+            for (String id : ids) {
+                PhotoMetadata metadata = metadataCache.get(new MetadataCache.Key(identity, id));
+                if (metadata != null) {
+                    cached.put(id, metadata);
+                } else {
+                    uncached.add(id);
                 }
-                fileMetadata.setDescription(description);
-                
-                // Set parent folder (user's folder or main folder)
-                if (targetFolderId != null && !targetFolderId.trim().isEmpty()) {
-                    fileMetadata.setParents(Collections.singletonList(targetFolderId));
+            }
+
+            List<List<String>> chunks = new ArrayList<>();
+            for (int i = 0; i < uncached.size(); i += MAX_BATCH_CALLS) {
+                chunks.add(uncached.subList(i, Math.min(uncached.size(), i + MAX_BATCH_CALLS)));
+            }
+            return Flux.fromIterable(chunks)
+                .flatMap(chunk -> Mono.fromFuture(() -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return fetchMetadata(getDriveServiceForUser(impersonatedEmail), identity, chunk);
+                    } catch (IOException e) {
+                        logger.error("Failed to get file metadata from Google Drive", e);
+                        throw new RuntimeException("Failed to get file metadata: " + e.getMessage(), e);
+                    }
+                }, executor)), batchParallelism)
+                .collect(() -> cached, Map::putAll)
+                .map(found -> {
+                    Map<String, PhotoMetadata> ordered = new LinkedHashMap<>();
+                    for (String id : ids) {
+                        if (found.containsKey(id)) {
+                            ordered.put(id, found.get(id));
+                        }
+                    }
+                    return ordered;
+                });
+        });
+    }
+
+    /**
+     * Gets the metadata of up to {@value #MAX_BATCH_CALLS} files in one Drive batch request and caches it.
+     * Missing, trashed and forbidden files are left out, as are files outside the main folder and
+     * the user folders ({@code <name>-fotos}) directly under it, so file IDs cannot be used to read
+     * anything else the service account can see.
+     */
+    Map<String, PhotoMetadata> fetchMetadata(Drive drive, String identity, List<String> fileIds) throws IOException {
+        Map<String, File> files = batchGet(drive, identity, fileIds, PhotoMetadata.DRIVE_FIELDS + ",trashed,parents");
+
+        Set<String> unknownParents = new LinkedHashSet<>();
+        for (File file : files.values()) {
+            if (!Boolean.TRUE.equals(file.getTrashed()) && !isInPhotoFolders(file) && file.getParents() != null) {
+                unknownParents.addAll(file.getParents());
+            }
+        }
+        if (!unknownParents.isEmpty()) {
+            verifyPhotoFolders(drive, identity, new ArrayList<>(unknownParents));
+        }
+
+        Map<String, PhotoMetadata> found = new HashMap<>();
+        files.forEach((id, file) -> {
+            if (Boolean.TRUE.equals(file.getTrashed())) {
+                return;
+            }
+            if (!isInPhotoFolders(file)) {
+                logger.warn("Refusing metadata of Drive file {} for {}: it is outside the photo folders", id, identity);
+                return;
+            }
+            PhotoMetadata metadata = PhotoMetadata.of(file);
+            found.put(id, metadata);
+            metadataCache.put(new MetadataCache.Key(identity, id), metadata);
+        });
+        return found;
+    }
+
+    /**
+     * Without a main folder photos go to the Drive root and there is nothing to scope by
+     */
+    private boolean isInPhotoFolders(File file) {
+        if (folderId == null || folderId.trim().isEmpty()) {
+            return true;
+        }
+        return file.getParents() != null && file.getParents().stream()
+            .anyMatch(parent -> parent.equals(folderId) || photoFolderIds.contains(parent));
+    }
+
+    /**
+     * Remembers which of the given folders are user folders under the main folder
+     */
+    private void verifyPhotoFolders(Drive drive, String identity, List<String> parentIds) throws IOException {
+        for (int i = 0; i < parentIds.size(); i += MAX_BATCH_CALLS) {
+            List<String> chunk = parentIds.subList(i, Math.min(parentIds.size(), i + MAX_BATCH_CALLS));
+            batchGet(drive, identity, chunk, "id,name,mimeType,parents,trashed").forEach((id, folder) -> {
+                if ("application/vnd.google-apps.folder".equals(folder.getMimeType())
+                        && folder.getName() != null && folder.getName().endsWith("-fotos")
+                        && !Boolean.TRUE.equals(folder.getTrashed())
+                        && folder.getParents() != null && folder.getParents().contains(folderId)) {
+                    photoFolderIds.add(id);
                 }
+            });
+        }
+    }
+
+    /**
+     * Gets up to {@value #MAX_BATCH_CALLS} files in one Drive batch request.
+     * Files that failed with a retryable error are fetched again in a smaller batch, with backoff;
+     * missing and forbidden files are left out.
+     * @return The files by ID
+     */
+    private Map<String, File> batchGet(Drive drive, String identity, List<String> fileIds, String fields)
+            throws IOException {
+        Map<String, File> found = new HashMap<>();
+        Set<String> pending = new LinkedHashSet<>(fileIds);
+        resilience.call(identity, "files.get.batch", () -> {
+            BatchRequest batch = drive.batch();
+            List<String> settled = new ArrayList<>();
+            List<IOException> retryable = new ArrayList<>();
+            for (String id : pending) {
+                drive.files().get(id).setFields(fields)
+                    .queue(batch, new JsonBatchCallback<File>() {
+                        @Override
+                        public void onSuccess(File file, HttpHeaders headers) {
+                            settled.add(id);
+                            found.put(id, file);
+                        }
 
-                // Create file content
-                InputStreamContent mediaContent = new InputStreamContent(
-                    "image/jpeg", 
-                    new ByteArrayInputStream(photo.getBytes())
-                );
-                mediaContent.setLength(photo.getSize());
-
-                // Upload file using the target Drive service
-                File uploadedFile = targetDriveService.files().create(fileMetadata, mediaContent)
-                    .setFields("id,name,webViewLink,webContentLink")
-                    .execute();
-
-                String logMessage = "Photo uploaded successfully to Google Drive: {} (ID: {})";
-                if (userEmail != null && !userEmail.trim().isEmpty()) {
-                    logMessage += " for user: " + userEmail;
+                        @Override
+                        public void onFailure(GoogleJsonError error, HttpHeaders headers) {
+                            IOException failure = new GoogleJsonResponseException(
+                                new HttpResponseException.Builder(error.getCode(), error.getMessage(), headers), error);
+                            if (DriveResilience.isRetryable(failure)) {
+                                retryable.add(failure);
+                            } else {
+                                settled.add(id);
+                                logger.debug("Drive file {} is not available to {}: {}", id, identity, error.getMessage());
+                            }
+                        }
+                    });
+            }
+            batch.execute();
+            // A retry only asks again for the files that failed with a retryable error
+            settled.forEach(pending::remove);
+            if (!retryable.isEmpty()) {
+                throw retryable.get(0);
+            }
+            return null;
+        });
+        return found;
+    }
+
+    /**
+     * Lists the photos in a user's folder ({@code <name>-fotos}), newest first, or the photos
+     * stored directly in the main folder for a blank user name.
+     * Pages of {@code google.drive.metadata.page-size} are fetched as the subscriber consumes them,
+     * asking Drive only for the metadata fields. The folder is never created.
+     * @return The photos, or nothing if the user has no folder yet
+     */
+    @Override
+    public Flux<PhotoMetadata> listPhotos(String userName, String userEmail) {
+        if (!isConfigured()) {
+            return Flux.error(new IllegalStateException("Google Drive service is not configured"));
+        }
+        return Mono.fromFuture(() -> CompletableFuture.supplyAsync(() -> {
+                try {
+                    return findPhotoFolder(userName, userEmail);
+                } catch (Exception e) {
+                    logger.error("Failed to find the photo folder of {}", userName, e);
+                    throw new RuntimeException("Failed to find user folder: " + e.getMessage(), e);
                 }
-                logger.info(logMessage, uploadedFile.getName(), uploadedFile.getId());
-                
-                return uploadedFile.getId();
-                
+            }, executor))
+            .flatMapMany(folder -> listPhotoPage(folder, null)
+                .expand(page -> page.getNextPageToken() == null ? Mono.empty()
+                    : listPhotoPage(folder, page.getNextPageToken()))
+                .flatMapIterable(page -> {
+                    List<PhotoMetadata> photos = new ArrayList<>();
+                    if (page.getFiles() != null) {
+                        for (File file : page.getFiles()) {
+                            PhotoMetadata metadata = PhotoMetadata.of(file);
+                            metadataCache.put(new MetadataCache.Key(folder.identity(), file.getId()), metadata);
+                            photos.add(metadata);
+                        }
+                    }
+                    return photos;
+                }, 1));
+    }
+
+    /**
+     * Drive client, identity and folder of a photo listing
+     */
+    private record PhotoFolder(Drive drive, String identity, String folderId) {
+    }
+
+    /**
+     * @return The user's existing folder, or null if there is none
+     */
+    private PhotoFolder findPhotoFolder(String userName, String userEmail) throws Exception {
+        String impersonatedEmail = resolveImpersonatedEmail(userEmail);
+        String identity = driveIdentity(impersonatedEmail);
+        Drive drive = getDriveServiceForUser(impersonatedEmail);
+        String sanitizedUserName = sanitizeUserName(userName);
+        if (sanitizedUserName == null) {
+            return folderId == null || folderId.trim().isEmpty() ? null : new PhotoFolder(drive, identity, folderId);
+        }
+        // Not loaded through the cache: an upload waiting on this lookup would get its null back
+        FolderCache.Key key = folderCacheKey(sanitizedUserName, impersonatedEmail);
+        String userFolderId = folderCache.peek(key);
+        if (userFolderId == null) {
+            userFolderId = resilience.call(identity, "find-folder",
+                () -> findFolderByName(sanitizedUserName + "-fotos", folderId, drive));
+            if (userFolderId != null) {
+                folderCache.put(key, userFolderId);
+            }
+        }
+        return userFolderId == null ? null : new PhotoFolder(drive, identity, userFolderId);
+    }
+
+    private Mono<FileList> listPhotoPage(PhotoFolder folder, String pageToken) {
+        return Mono.fromFuture(() -> CompletableFuture.supplyAsync(() -> {
+            try {
+                return resilience.call(folder.identity(), "files.list", () -> folder.drive().files().list()
+                    .setQ("'" + folder.folderId() + "' in parents"
+                        + " and mimeType!='application/vnd.google-apps.folder' and trashed=false")
+                    .setFields("nextPageToken, files(" + PhotoMetadata.DRIVE_FIELDS + ")")
+                    .setOrderBy("createdTime desc")
+                    .setPageSize(Math.max(1, Math.min(1000, metadataPageSize)))
+                    .setPageToken(pageToken)
+                    .execute());
             } catch (IOException e) {
-                logger.error("Failed to upload photo to Google Drive", e);
-                throw new RuntimeException("Failed to upload photo to Google Drive: " + e.getMessage(), e);
+                logger.error("Failed to list photos in Google Drive folder {}", folder.folderId(), e);
+                throw new RuntimeException("Failed to list photos: " + e.getMessage(), e);
             }
         }, executor));
     }
 
-    // Overloaded method for backward compatibility
-    public Mono<String> uploadPhotoToGoogleDrive(MultipartFile photo) {
-        return uploadPhotoToGoogleDrive(photo, null);
+    /**
+     * Opens a Drive resumable upload session for a photo, in the user's folder and as the
+     * impersonated user, so the client can send the bytes straight to Drive.
+     * Finish with {@link #completeDirectUpload(String, String)}.
+     * @param contentType Image type of the photo
+     * @param size Photo size in bytes; Drive refuses more, and completion checks it
+     * @param origin The browser origin, so Drive accepts the cross-origin PUT; may be null
+     */
+    public Mono<DirectUpload> startDirectUpload(String userName, String userEmail, String contentType, long size,
+                                                String origin) {
+        if (size <= 0) {
+            return Mono.error(new IllegalArgumentException("The photo size is required"));
+        }
+        return Mono.fromFuture(() -> CompletableFuture.supplyAsync(() -> {
+            try {
+                UploadTarget target = resolveTarget(userName, userEmail);
+                File fileMetadata = photoMetadata(target, null, contentType);
+                DirectUploadSessions.Session session = directUploads.open(target.impersonatedEmail, userEmail,
+                    target.sanitizedUserName, target.folderId, fileMetadata.getName(), size);
+                fileMetadata.setAppProperties(Map.of(DirectUploadSessions.SESSION_PROPERTY, session.sessionId()));
+                String uploadUrl;
+                try {
+                    uploadUrl = resilience.call(driveIdentity(target.impersonatedEmail), "files.create.session",
+                        () -> openResumableSession(target.drive, fileMetadata, contentType, size, origin));
+                } catch (IOException | RuntimeException e) {
+                    directUploads.close(session.sessionId());
+                    throw e;
+                }
+                metrics.recordDirectUpload("started");
+                logger.info("Opened direct upload session {} for {}", session.sessionId(), fileMetadata.getName());
+                return new DirectUpload(session.sessionId(), uploadUrl, fileMetadata.getName());
+            } catch (IOException e) {
+                logger.error("Failed to open a Drive upload session", e);
+                throw new RuntimeException("Failed to open a Drive upload session: " + e.getMessage(), e);
+            }
+        }, executor));
     }
 
-    public Mono<String> getFileInfo(String fileId) {
-        return Mono.fromFuture(CompletableFuture.supplyAsync(() -> {
+    /**
+     * Records a photo the client uploaded through a direct upload session, after checking
+     * with Drive that the file exists and is the one the session was opened for
+     * @return The file ID, or empty if the session is unknown or expired
+     * @throws IllegalArgumentException (in the Mono) If the file does not match the session
+     */
+    public Mono<String> completeDirectUpload(String sessionId, String fileId) {
+        return Mono.fromFuture(() -> CompletableFuture.supplyAsync(() -> {
+            DirectUploadSessions.Session session = directUploads.get(sessionId);
+            if (session == null) {
+                return null;
+            }
             try {
-                File file = driveService.files().get(fileId)
-                    .setFields("id,name,webViewLink,webContentLink,size,createdTime")
-                    .execute();
-                
-                return String.format("File: %s, Size: %s bytes, Created: %s, View: %s", 
-                    file.getName(), 
-                    file.getSize(), 
-                    file.getCreatedTime(), 
-                    file.getWebViewLink());
-                    
+                Drive drive = getDriveServiceForUser(session.impersonatedEmail());
+                File file = resilience.call(driveIdentity(session.impersonatedEmail()), "files.get",
+                    () -> drive.files().get(fileId)
+                        .setFields("id,name,parents,trashed,size,sha256Checksum,appProperties").execute());
+                if (!session.uploaded(file)) {
+                    metrics.recordDirectUpload("rejected");
+                    throw new IllegalArgumentException("File " + fileId + " was not uploaded through this session");
+                }
+                directUploads.close(sessionId);
+                if (dedupIndex != null && file.getSha256Checksum() != null) {
+                    dedupIndex.put(dedupKey(file.getSha256Checksum(), session.folderId()), file.getId());
+                }
+                metrics.recordDirectUpload("completed");
+                logger.info("Photo uploaded directly to Google Drive: {} (ID: {}, {} bytes)",
+                    file.getName(), file.getId(), file.getSize());
+                return file.getId();
+            } catch (GoogleJsonResponseException e) {
+                if (e.getStatusCode() == 404) {
+                    metrics.recordDirectUpload("rejected");
+                    throw new IllegalArgumentException("File " + fileId + " does not exist in Google Drive", e);
+                }
+                throw new RuntimeException("Failed to verify uploaded file: " + e.getMessage(), e);
             } catch (IOException e) {
-                logger.error("Failed to get file info from Google Drive", e);
-                throw new RuntimeException("Failed to get file info: " + e.getMessage(), e);
+                throw new RuntimeException("Failed to verify uploaded file: " + e.getMessage(), e);
             }
         }, executor));
     }
 
+    /**
+     * Starts a resumable upload without sending any bytes
+     * @return The session URI from Drive's Location header
+     */
+    String openResumableSession(Drive drive, File fileMetadata, String contentType, long size,
+                                        String origin) throws IOException {
+        // HttpURLConnection silently drops the Origin header, so sessions are opened over Apache HttpClient
+        HttpRequest request = sessionTransport.createRequestFactory(drive.getRequestFactory().getInitializer())
+            .buildPostRequest(new GenericUrl(driveRootUrl() + "upload/drive/v3/files?uploadType=resumable"),
+                new JsonHttpContent(JSON_FACTORY, fileMetadata));
+        request.getHeaders().set("X-Upload-Content-Type", contentType);
+        // Drive rejects an upload that does not match the announced length
+        request.getHeaders().set("X-Upload-Content-Length", size);
+        if (origin != null && !origin.isBlank()) {
+            request.getHeaders().set("Origin", origin);
+        }
+        HttpResponse response = request.execute();
+        try {
+            String location = response.getHeaders().getLocation();
+            if (location == null) {
+                throw new IOException("Drive did not return an upload session URI");
+            }
+            return location;
+        } finally {
+            response.disconnect();
+        }
+    }
+
+    /**
+     * Warm-up steps: fresh tokens, pooled connections to Drive and the user folders already
+     * under the main folder in the folder cache
+     */
+    private void warmUp() {
+        Map<String, DriveWarmup.Step> steps = new LinkedHashMap<>();
+        steps.put("credentials", this::refreshCredentials);
+        steps.put("connections", this::preconnect);
+        if (folderId != null && !folderId.trim().isEmpty()) {
+            steps.put("folders", this::prefetchFolders);
+        }
+        warmup.run(steps);
+    }
+
+    /**
+     * Periodic task: refreshes tokens before they expire and retries a failed warm-up
+     */
+    private void maintain() {
+        try {
+            if (warmupEnabled && !warmup.isWarm()) {
+                warmUp();
+            } else {
+                refreshCredentials();
+            }
+        } catch (Exception e) {
+            logger.warn("Background Drive token refresh failed: {}", e.toString());
+        }
+    }
+
+    /**
+     * Refreshes the tokens of the default and cached impersonated clients that are close to expiry.
+     * Credentials refresh only inside their refresh margin (a few minutes before expiry),
+     * so running this more often than that costs nothing.
+     * @throws IOException The last failure, after trying every client
+     */
+    private void refreshCredentials() throws IOException {
+        Set<Credentials> credentials = Collections.newSetFromMap(new IdentityHashMap<>());
+        credentials.add(credentialsOf(driveService));
+        for (Drive client : clientCache.snapshot()) {
+            credentials.add(credentialsOf(client));
+        }
+        IOException failure = null;
+        for (Credentials each : credentials) {
+            if (!(each instanceof OAuth2Credentials oauth)) {
+                continue;
+            }
+            try {
+                AccessToken before = oauth.getAccessToken();
+                oauth.refreshIfExpired();
+                // A refresh replaces the token; outside the refresh margin nothing happens
+                if (oauth.getAccessToken() != before) {
+                    tokenRefreshes.incrementAndGet();
+                }
+            } catch (IOException e) {
+                tokenRefreshFailures.incrementAndGet();
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static Credentials credentialsOf(Drive client) {
+        if (client != null && client.getRequestFactory().getInitializer() instanceof DriveRequestInitializer init) {
+            return init.getCredentials();
+        }
+        return null;
+    }
+
+    /**
+     * Health probe: makes sure the default client holds a valid access token, refreshing it when it is close to expiry
+     * @throws IOException When the token cannot be obtained, e.g. revoked keys or missing domain-wide delegation
+     */
+    public void checkCredentials() throws IOException {
+        if (credentialsOf(driveService) instanceof OAuth2Credentials oauth) {
+            oauth.refreshIfExpired();
+            if (oauth.getAccessToken() == null) {
+                throw new IOException("No access token was issued");
+            }
+        }
+    }
+
+    /**
+     * Health probe: fetches the main folder, or the account when there is no main folder, on the Drive executor.
+     * Bypasses retries and circuit breakers so it reports what Drive answers right now.
+     * @throws IOException When Drive does not answer in time or the folder is missing or trashed
+     */
+    public void checkFolder(Duration timeout) throws IOException {
+        CompletableFuture<File> call = CompletableFuture.supplyAsync(() -> {
+            try {
+                if (folderId != null && !folderId.trim().isEmpty()) {
+                    return driveService.files().get(folderId).setFields("id, trashed").execute();
+                }
+                driveService.about().get().setFields("user(emailAddress)").execute();
+                return null;
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+        File folder;
+        try {
+            folder = call.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            call.cancel(true);
+            throw new IOException("Drive did not answer within " + timeout.toMillis() + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while probing Drive");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            throw cause instanceof IOException io ? io : new IOException(cause);
+        }
+        if (folder != null && Boolean.TRUE.equals(folder.getTrashed())) {
+            throw new IOException("Folder " + folderId + " is in the trash");
+        }
+    }
+
+    /**
+     * Issues a few cheap calls at once so the transport keeps that many connections open
+     */
+    private void preconnect() {
+        CompletableFuture<?>[] calls = new CompletableFuture<?>[Math.max(1, warmupConnections)];
+        for (int i = 0; i < calls.length; i++) {
+            calls[i] = CompletableFuture.runAsync(() -> {
+                try {
+                    if (folderId != null && !folderId.trim().isEmpty()) {
+                        driveService.files().get(folderId).setFields("id").execute();
+                    } else {
+                        driveService.about().get().setFields("user(emailAddress)").execute();
+                    }
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        }
+        CompletableFuture.allOf(calls).join();
+    }
+
+    /**
+     * Loads the existing user folders (<name>-fotos) under the main folder into the folder cache,
+     * up to the cache size, so first uploads skip the lookup.
+     * Only the default identity's folders are loaded: impersonated clients are created on a
+     * user's first request, and each of them looks its folder up once then.
+     */
+    private void prefetchFolders() throws IOException {
+        String query = "'" + folderId + "' in parents and mimeType='application/vnd.google-apps.folder' and trashed=false";
+        String pageToken = null;
+        int loaded = 0;
+        do {
+            FileList page = driveService.files().list()
+                .setQ(query)
+                .setFields("nextPageToken, files(id, name)")
+                .setPageSize(Math.min(1000, folderCacheMaxSize - loaded))
+                .setPageToken(pageToken)
+                .execute();
+            if (page.getFiles() != null) {
+                for (File folder : page.getFiles()) {
+                    String name = folder.getName();
+                    if (name != null && name.endsWith("-fotos") && name.length() > "-fotos".length()
+                            && loaded < folderCacheMaxSize) {
+                        folderCache.put(folderCacheKey(name.substring(0, name.length() - "-fotos".length()), null),
+                            folder.getId());
+                        loaded++;
+                    }
+                }
+            }
+            pageToken = page.getNextPageToken();
+        } while (pageToken != null && loaded < folderCacheMaxSize && !Thread.currentThread().isInterrupted());
+        logger.info("Prefetched {} user folders into the folder cache", loaded);
+    }
+
     /**
      * Gets or creates a folder for a specific user
      * @param userName The sanitized user name
      * @param targetDriveService The Drive service to use (could be impersonated)
+     * @param impersonatedEmail The impersonated user owning targetDriveService, or null for the default service
      * @return The folder ID for the user's folder, or the main folder ID if no user name
      */
-    private String getUserFolder(String userName, Drive targetDriveService) {
+    String getUserFolder(String userName, Drive targetDriveService, String impersonatedEmail) {
         if (userName == null || userName.trim().isEmpty()) {
             return folderId; // Return main folder if no user name
         }
         
         try {
-            // First, check if the user's folder already exists
+            // Concurrent uploads for the same user share one lookup/create
             String userFolderName = userName + "-fotos";
-            String existingFolderId = findFolderByName(userFolderName, folderId, targetDriveService);
-            
-            if (existingFolderId != null) {
-                logger.debug("Found existing folder for user {}: {}", userName, existingFolderId);
-                return existingFolderId;
+            FolderCache.FolderLoader findOrCreate = () ->
+                // Retries look the folder up again first, so a create whose response was lost is not repeated
+                resilience.call(driveIdentity(impersonatedEmail), "resolve-folder", () -> {
+                    // First, check if the user's folder already exists
+                    String existingFolderId = findFolderByName(userFolderName, folderId, targetDriveService);
+                    
+                    if (existingFolderId != null) {
+                        logger.debug("Found existing folder for user {}: {}", userName, existingFolderId);
+                        return existingFolderId;
+                    }
+                    
+                    // Create new folder for the user
+                    String newFolderId = createUserFolder(userFolderName, folderId, targetDriveService);
+                    logger.info("Created new folder for user {}: {} (ID: {})", userName, userFolderName, newFolderId);
+                    return newFolderId;
+                });
+            FolderCache.Key key = folderCacheKey(userName, impersonatedEmail);
+            String userFolderId = folderCache.get(key, findOrCreate);
+            if (userFolderId == null) {
+                // A shared load that only looked the folder up; this upload needs it to exist
+                userFolderId = findOrCreate.load();
+                folderCache.put(key, userFolderId);
             }
-            
-            // Create new folder for the user
-            String newFolderId = createUserFolder(userFolderName, folderId, targetDriveService);
-            logger.info("Created new folder for user {}: {} (ID: {})", userName, userFolderName, newFolderId);
-            return newFolderId;
+            return userFolderId;
             
         } catch (Exception e) {
+            metrics.recordFolderFallback();
             logger.error("Failed to get/create user folder for {}, using main folder", userName, e);
             return folderId; // Fallback to main folder
         }
@@ -221,7 +1278,18 @@ public class GoogleDriveService {
      * Legacy method for backward compatibility
      */
     private String getUserFolder(String userName) {
-        return getUserFolder(userName, driveService);
+        return getUserFolder(userName, driveService, null);
+    }
+
+    private FolderCache.Key folderCacheKey(String userName, String impersonatedEmail) {
+        return new FolderCache.Key(driveIdentity(impersonatedEmail), folderId, userName + "-fotos");
+    }
+
+    /**
+     * Name of the Drive identity a call runs as, used for caches and circuit breakers
+     */
+    private static String driveIdentity(String impersonatedEmail) {
+        return impersonatedEmail != null ? impersonatedEmail : "default";
     }
     
     /**
@@ -231,7 +1299,7 @@ public class GoogleDriveService {
      * @param targetDriveService The Drive service to use
      * @return The folder ID if found, null otherwise
      */
-    private String findFolderByName(String folderName, String parentFolderId, Drive targetDriveService) throws IOException {
+    String findFolderByName(String folderName, String parentFolderId, Drive targetDriveService) throws IOException {
         // Build query to find folder by name
         StringBuilder query = new StringBuilder("mimeType='application/vnd.google-apps.folder' and name='" + folderName + "'");
         
@@ -297,58 +1365,83 @@ public class GoogleDriveService {
     /**
      * Creates a Drive service with service account credentials (no impersonation)
      */
-    private Drive createDriveServiceWithServiceAccount() throws Exception {
-        HttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-        
+    private Drive createDriveServiceWithServiceAccount() {
         return new Drive.Builder(
             httpTransport, 
             JSON_FACTORY, 
-            new HttpCredentialsAdapter(baseCredentials)
-        ).setApplicationName(APPLICATION_NAME).build();
+            requestInitializer(baseCredentials)
+        ).setApplicationName(APPLICATION_NAME).setRootUrl(driveRootUrl()).build();
     }
 
     /**
-     * Creates a Drive service with user impersonation
+     * Creates a Drive service with user impersonation on the shared transport.
+     * Only called by the client cache; use getDriveServiceForUser instead.
      */
-    private Drive createDriveServiceForUser(String userEmail) throws Exception {
-        HttpTransport httpTransport = GoogleNetHttpTransport.newTrustedTransport();
-        
+    Drive createDriveServiceForUser(String userEmail) {
         // Create impersonated credentials
         GoogleCredentials impersonatedCredentials = baseCredentials.createDelegated(userEmail);
         
         return new Drive.Builder(
             httpTransport, 
             JSON_FACTORY, 
-            new HttpCredentialsAdapter(impersonatedCredentials)
-        ).setApplicationName(APPLICATION_NAME).build();
+            requestInitializer(impersonatedCredentials)
+        ).setApplicationName(APPLICATION_NAME).setRootUrl(driveRootUrl()).build();
     }
 
     /**
-     * Gets a Drive service for a specific user email
-     * If impersonation is enabled, creates a new service for that user
+     * Drive API root, overridable to point at a local stand-in for load tests
+     */
+    private String driveRootUrl() {
+        if (rootUrl == null || rootUrl.trim().isEmpty()) {
+            return Drive.DEFAULT_ROOT_URL;
+        }
+        return rootUrl.trim().endsWith("/") ? rootUrl.trim() : rootUrl.trim() + "/";
+    }
+
+    private DriveRequestInitializer requestInitializer(GoogleCredentials credentials) {
+        return new DriveRequestInitializer(credentials, 
+            (int) retryInitialBackoff.toMillis(), (int) retryMaxElapsed.toMillis());
+    }
+
+    /**
+     * Validates a requested user email for impersonation
+     * @return The normalized email to impersonate, or null to use the default service
+     */
+    private String resolveImpersonatedEmail(String userEmail) {
+        if (!impersonationEnabled || userEmail == null || userEmail.trim().isEmpty()) {
+            return null; // Use default service
+        }
+        
+        // Validate email format and domain
+        String cleanEmail = userEmail.trim().toLowerCase();
+        if (!isValidEmail(cleanEmail)) {
+            logger.warn("Invalid email format: {}, using default service", userEmail);
+            return null;
+        }
+        
+        if (!cleanEmail.endsWith("@" + impersonationDomain)) {
+            logger.warn("Email {} not in allowed domain {}, using default service", 
+                cleanEmail, impersonationDomain);
+            return null;
+        }
+        
+        return cleanEmail;
+    }
+
+    /**
+     * Gets a Drive service for an impersonated user email
+     * If an email is given, returns the cached service for that user
      * Otherwise, returns the default service
+     * @param userEmail The normalized email from resolveImpersonatedEmail, or null
      */
     private Drive getDriveServiceForUser(String userEmail) {
-        if (!impersonationEnabled || userEmail == null || userEmail.trim().isEmpty()) {
+        if (userEmail == null) {
             return driveService; // Use default service
         }
         
         try {
-            // Validate email format and domain
-            String cleanEmail = userEmail.trim().toLowerCase();
-            if (!isValidEmail(cleanEmail)) {
-                logger.warn("Invalid email format: {}, using default service", userEmail);
-                return driveService;
-            }
-            
-            if (!cleanEmail.endsWith("@" + impersonationDomain)) {
-                logger.warn("Email {} not in allowed domain {}, using default service", 
-                    cleanEmail, impersonationDomain);
-                return driveService;
-            }
-            
-            // Create impersonated service for this user
-            return createDriveServiceForUser(cleanEmail);
+            // Reuse the impersonated service (and its token) for this user
+            return clientCache.get(userEmail);
             
         } catch (Exception e) {
             logger.error("Failed to create impersonated Drive service for user: {}, using default service", 
@@ -365,6 +1458,118 @@ public class GoogleDriveService {
                email.length() > 5 && !email.startsWith("@") && !email.endsWith("@");
     }
 
+    /**
+     * Hit/miss/eviction counters of the impersonated client cache
+     */
+    public Map<String, Object> getClientCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        if (clientCache == null) {
+            return stats;
+        }
+        stats.put("size", clientCache.size());
+        stats.put("maxSize", clientCache.getMaxSize());
+        stats.put("hits", clientCache.getHits());
+        stats.put("misses", clientCache.getMisses());
+        stats.put("evictions", clientCache.getEvictions());
+        return stats;
+    }
+
+    /**
+     * Hit/miss/eviction counters of the user folder cache
+     */
+    public Map<String, Object> getFolderCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        if (folderCache == null) {
+            return stats;
+        }
+        stats.put("size", folderCache.size());
+        stats.put("hits", folderCache.getHits());
+        stats.put("misses", folderCache.getMisses());
+        stats.put("evictions", folderCache.getEvictions());
+        return stats;
+    }
+
+    /**
+     * Size and hit/miss counters of the content deduplication index
+     */
+    public Map<String, Object> getDedupStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", dedupIndex != null);
+        if (dedupIndex == null) {
+            return stats;
+        }
+        stats.put("size", dedupIndex.size());
+        stats.put("maxSize", dedupIndex.getMaxSize());
+        stats.put("hits", dedupIndex.getHits());
+        stats.put("misses", dedupIndex.getMisses());
+        stats.put("persistent", dedupIndex.isPersistent());
+        return stats;
+    }
+
+    /**
+     * Mode, queue depth and active task gauges of the Drive executor
+     */
+    public Map<String, Object> getExecutorStats() {
+        Map<String, Object> stats = new HashMap<>();
+        if (executor == null) {
+            return stats;
+        }
+        stats.put("mode", executor.getMode().name().toLowerCase());
+        stats.put("maxConcurrent", executor.getMaxConcurrent());
+        stats.put("queueDepth", executor.getQueueDepth());
+        stats.put("active", executor.getActiveCount());
+        stats.put("completed", executor.getCompletedCount());
+        return stats;
+    }
+
+    /**
+     * Size and hit/miss/eviction counters of the photo metadata cache
+     */
+    public Map<String, Object> getMetadataCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        if (metadataCache == null) {
+            return stats;
+        }
+        stats.put("size", metadataCache.size());
+        stats.put("maxSize", metadataCache.getMaxSize());
+        stats.put("hits", metadataCache.getHits());
+        stats.put("misses", metadataCache.getMisses());
+        stats.put("evictions", metadataCache.getEvictions());
+        return stats;
+    }
+
+    /**
+     * Retry counters and circuit breaker state per Drive identity
+     */
+    public Map<String, Object> getResilienceStats() {
+        return resilience != null ? resilience.getStats() : new HashMap<>();
+    }
+
+    /**
+     * Warm-up outcome and background token refresh counters
+     */
+    public Map<String, Object> getWarmupStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", warmupEnabled);
+        if (warmup != null) {
+            stats.putAll(warmup.getDetails());
+        }
+        stats.put("tokenRefreshes", tokenRefreshes.get());
+        stats.put("tokenRefreshFailures", tokenRefreshFailures.get());
+        return stats;
+    }
+
+    /**
+     * @return The warm-up state, WARM when warm-up is disabled, or null when Drive is not configured
+     */
+    DriveWarmup.Status getWarmupStatus() {
+        if (warmup == null) {
+            return null;
+        }
+        return warmupEnabled ? warmup.getStatus() : DriveWarmup.Status.WARM;
+    }
+
+    @Override
     public boolean isConfigured() {
         return enabled && driveService != null && credentialsPath != null && !credentialsPath.trim().isEmpty();
     }
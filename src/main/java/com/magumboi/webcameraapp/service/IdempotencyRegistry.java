@@ -0,0 +1,133 @@
+package com.magumboi.webcameraapp.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Results of requests carrying an {@code Idempotency-Key}, so a client that timed out
+ * and retries gets the original result instead of uploading the photo again.
+ * <p>
+ * Requests with the same key while the first is still running share its result.
+ * Completed results worth replaying are kept for a TTL in an LRU bounded by size;
+ * others (e.g. server errors) are dropped so a retry runs again. A run keeps going when its
+ * client goes away, and every entry expires a TTL after it was created, so a run that never
+ * finishes cannot hold its key.
+ */
+@Component
+public class IdempotencyRegistry {
+
+    /**
+     * The result for a key, and whether this request started it or joins an earlier one
+     */
+    public record Claim<T>(Mono<T> result, boolean original) {
+    }
+
+    /**
+     * A key was sent again with a different request
+     */
+    public static class KeyReusedException extends RuntimeException {
+        public KeyReusedException(String key) {
+            super("Idempotency-Key " + key + " was already used for a different request");
+        }
+    }
+
+    private static final class Entry {
+        final String fingerprint;
+        final Mono<Object> result;
+        final long expiresAtNanos;
+
+        Entry(String fingerprint, Mono<Object> result, long expiresAtNanos) {
+            this.fingerprint = fingerprint;
+            this.result = result;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+
+    @Autowired
+    public IdempotencyRegistry(@Value("${upload.idempotency.max-entries:10000}") int maxEntries,
+                               @Value("${upload.idempotency.ttl:PT1H}") Duration ttl) {
+        this(maxEntries, ttl, System::nanoTime);
+    }
+
+    IdempotencyRegistry(int maxEntries, Duration ttl, LongSupplier clock) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > IdempotencyRegistry.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the in-flight or cached result for the key, or runs the action once for it
+     * @param fingerprint Identifies the request; the same key with another fingerprint is rejected
+     * @param replayable Whether a completed result may be replayed to later requests
+     * @throws KeyReusedException If the key is known for a different request
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> Claim<T> claim(String key, String fingerprint, Supplier<Mono<T>> action,
+                                           Predicate<? super T> replayable) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAtNanos - clock.getAsLong() <= 0) {
+            entries.remove(key);
+            entry = null;
+        }
+        if (entry != null) {
+            if (!entry.fingerprint.equals(fingerprint)) {
+                throw new KeyReusedException(key);
+            }
+            replayed.incrementAndGet();
+            return new Claim<>((Mono<T>) entry.result, false);
+        }
+
+        Entry[] created = new Entry[1];
+        Mono<Object> result = Mono.defer(action)
+            .doOnSuccess(value -> completed(key, created[0], value != null && replayable.test(value)))
+            .doOnError(error -> completed(key, created[0], false))
+            .map(value -> (Object) value)
+            .cache();
+        created[0] = new Entry(fingerprint, result, clock.getAsLong() + ttlNanos);
+        entries.put(key, created[0]);
+        started.incrementAndGet();
+        return new Claim<>((Mono<T>) result, true);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getStarted() {
+        return started.get();
+    }
+
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    private synchronized void completed(String key, Entry entry, boolean keep) {
+        if (!keep) {
+            entries.remove(key, entry);
+        }
+    }
+}
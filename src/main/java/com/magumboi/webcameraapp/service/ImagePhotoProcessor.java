@@ -0,0 +1,311 @@
+package com.magumboi.webcameraapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Downscales and re-encodes photos with ImageIO according to a quality profile.
+ * <p>
+ * Re-encoding drops all metadata (EXIF, GPS, color profiles). When a photo needs
+ * no resizing and the re-encode would not be smaller, the original is kept with its
+ * metadata segments cut out losslessly instead; only the ORIGINAL profile uploads
+ * metadata. JPEG and PNG are detected from the photo bytes rather than the client
+ * content type; PNG stays PNG so transparency survives. Formats ImageIO cannot
+ * decode (e.g. WebP) are uploaded unchanged but labelled with their real content type.
+ */
+@Component
+public class ImagePhotoProcessor implements PhotoProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImagePhotoProcessor.class);
+    private static final Set<String> METADATA_PNG_CHUNKS = Set.of("eXIf", "tEXt", "zTXt", "iTXt", "tIME");
+
+    /**
+     * Built-in quality profiles: longest side in pixels (0 = keep) and JPEG quality
+     */
+    public enum Profile {
+        ORIGINAL(0, 1.0f),
+        HIGH(2560, 0.9f),
+        BALANCED(1920, 0.85f),
+        COMPACT(1280, 0.75f);
+
+        final int maxDimension;
+        final float jpegQuality;
+
+        Profile(int maxDimension, float jpegQuality) {
+            this.maxDimension = maxDimension;
+            this.jpegQuality = jpegQuality;
+        }
+    }
+
+    private final Profile profile;
+    private final int maxDimension;
+    private final float jpegQuality;
+
+    public ImagePhotoProcessor(
+            @Value("${upload.processing.profile:original}") String profile,
+            @Value("${upload.processing.max-dimension:0}") int maxDimension,
+            @Value("${upload.processing.jpeg-quality:0}") float jpegQuality) {
+        this.profile = Profile.valueOf(profile.trim().toUpperCase(Locale.ROOT));
+        // Explicit settings override the profile defaults
+        this.maxDimension = maxDimension > 0 ? maxDimension : this.profile.maxDimension;
+        this.jpegQuality = jpegQuality > 0 ? Math.min(jpegQuality, 1.0f) : this.profile.jpegQuality;
+    }
+
+    @Override
+    public MultipartFile process(MultipartFile photo) throws IOException {
+        String detectedType = detectContentType(photo);
+        if (profile == Profile.ORIGINAL || detectedType == null
+                || !(detectedType.equals("image/jpeg") || detectedType.equals("image/png"))) {
+            return relabel(photo, detectedType);
+        }
+
+        BufferedImage image;
+        try (InputStream in = photo.getInputStream()) {
+            image = ImageIO.read(in);
+        }
+        if (image == null) {
+            return relabel(photo, detectedType);
+        }
+
+        boolean png = detectedType.equals("image/png");
+        BufferedImage scaled = downscale(image, png);
+        byte[] encoded = png ? encodePng(scaled) : encodeJpeg(scaled);
+
+        // A re-encode that only grows the file is not worth it unless it also resized,
+        // but the metadata still has to go
+        if (scaled == image && encoded.length >= photo.getSize()) {
+            byte[] original = photo.getBytes();
+            byte[] stripped = png ? stripPngMetadata(original) : stripJpegMetadata(original);
+            if (stripped != null) {
+                return new ProcessedPhoto(photo, detectedType, stripped);
+            }
+        }
+        logger.debug("Processed photo {} from {}x{} ({} bytes) to {}x{} ({} bytes)", photo.getOriginalFilename(),
+            image.getWidth(), image.getHeight(), photo.getSize(), scaled.getWidth(), scaled.getHeight(), encoded.length);
+        return new ProcessedPhoto(photo, detectedType, encoded);
+    }
+
+    Profile getProfile() {
+        return profile;
+    }
+
+    private BufferedImage downscale(BufferedImage image, boolean keepAlpha) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int longest = Math.max(width, height);
+        boolean needsRgb = !keepAlpha && image.getType() != BufferedImage.TYPE_INT_RGB
+            && image.getType() != BufferedImage.TYPE_3BYTE_BGR;
+        if ((maxDimension <= 0 || longest <= maxDimension) && !needsRgb) {
+            return image;
+        }
+
+        double scale = maxDimension > 0 && longest > maxDimension ? (double) maxDimension / longest : 1.0;
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight,
+            keepAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        if (!writers.hasNext()) {
+            throw new IOException("No JPEG encoder available");
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(imageOut);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, "png", out)) {
+            throw new IOException("No PNG encoder available");
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Copies a JPEG without its EXIF/XMP (APP1), other application and comment segments.
+     * JFIF (APP0), ICC profiles (APP2) and Adobe (APP14) are kept as they affect decoding.
+     * @return The stripped JPEG, or null if the segments cannot be parsed
+     */
+    static byte[] stripJpegMetadata(byte[] jpeg) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(jpeg.length);
+        out.write(jpeg, 0, 2);
+        int pos = 2;
+        while (pos + 4 <= jpeg.length) {
+            if ((jpeg[pos] & 0xFF) != 0xFF) {
+                return null;
+            }
+            int marker = jpeg[pos + 1] & 0xFF;
+            if (marker == 0xFF) {
+                pos++;
+                continue;
+            }
+            if (marker == 0xDA) {
+                // Start of scan: the entropy-coded data runs to the end
+                out.write(jpeg, pos, jpeg.length - pos);
+                return out.toByteArray();
+            }
+            int length = ((jpeg[pos + 2] & 0xFF) << 8) | (jpeg[pos + 3] & 0xFF);
+            if (length < 2 || pos + 2 + length > jpeg.length) {
+                return null;
+            }
+            boolean metadata = marker == 0xFE
+                || (marker >= 0xE1 && marker <= 0xEF && marker != 0xE2 && marker != 0xEE);
+            if (!metadata) {
+                out.write(jpeg, pos, 2 + length);
+            }
+            pos += 2 + length;
+        }
+        return null;
+    }
+
+    /**
+     * Copies a PNG without its EXIF, text and timestamp chunks
+     * @return The stripped PNG, or null if the chunks cannot be parsed
+     */
+    static byte[] stripPngMetadata(byte[] png) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(png.length);
+        out.write(png, 0, 8);
+        int pos = 8;
+        while (pos + 12 <= png.length) {
+            long length = ((png[pos] & 0xFFL) << 24) | ((png[pos + 1] & 0xFF) << 16)
+                | ((png[pos + 2] & 0xFF) << 8) | (png[pos + 3] & 0xFF);
+            if (pos + 12 + length > png.length) {
+                return null;
+            }
+            String type = new String(png, pos + 4, 4, StandardCharsets.ISO_8859_1);
+            int chunkLength = (int) length + 12;
+            if (!METADATA_PNG_CHUNKS.contains(type)) {
+                out.write(png, pos, chunkLength);
+            }
+            pos += chunkLength;
+            if (type.equals("IEND")) {
+                return out.toByteArray();
+            }
+        }
+        return null;
+    }
+
+    private static MultipartFile relabel(MultipartFile photo, String detectedType) {
+        if (detectedType == null || detectedType.equals(photo.getContentType())) {
+            return photo;
+        }
+        return new RelabeledPhoto(photo, detectedType);
+    }
+
+    /**
+     * Sniffs the image format from its first bytes
+     * @return The content type, or null when the format is not recognised
+     */
+    static String detectContentType(MultipartFile photo) throws IOException {
+        byte[] head = new byte[12];
+        int read;
+        try (InputStream in = photo.getInputStream()) {
+            read = in.readNBytes(head, 0, head.length);
+        }
+        if (read >= 3 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xD8 && (head[2] & 0xFF) == 0xFF) {
+            return "image/jpeg";
+        }
+        if (read >= 8 && (head[0] & 0xFF) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+            return "image/png";
+        }
+        if (read >= 12 && head[0] == 'R' && head[1] == 'I' && head[2] == 'F' && head[3] == 'F'
+                && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    /**
+     * Streams the original photo but reports its detected content type
+     */
+    private static class RelabeledPhoto implements MultipartFile {
+
+        private final MultipartFile delegate;
+        private final String contentType;
+
+        RelabeledPhoto(MultipartFile delegate, String contentType) {
+            this.delegate = delegate;
+            this.contentType = contentType;
+        }
+
+        @Override
+        public String getName() {
+            return delegate.getName();
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return delegate.getOriginalFilename();
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return delegate.isEmpty();
+        }
+
+        @Override
+        public long getSize() {
+            return delegate.getSize();
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return delegate.getBytes();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return delegate.getInputStream();
+        }
+
+        @Override
+        public void transferTo(java.io.File dest) throws IOException {
+            delegate.transferTo(dest);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.magumboi.webcameraapp.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Stores photos on the local filesystem with the same layout as Drive:
+ * {@code <dir>/<name>-fotos/<name>-camera-photo-<timestamp>.jpg}. IDs are paths relative to the
+ * storage directory. Used instead of Drive when {@code storage.backend=local}, to run and
+ * load-test the upload path without Google credentials.
+ * <p>
+ * Photos that already sit in a local file ({@link FileBackedPhoto}: reactive uploads and
+ * spooled uploads) are copied with {@link FileChannel#transferTo}, which Linux does in the
+ * kernel. Other uploads (servlet multipart parts, processed photos) are streamed into the file.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalPhotoStorage implements PhotoStorage {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalPhotoStorage.class);
+    private static final long TRANSFER_CHUNK = 1024 * 1024;
+    private static final int MAX_NAME_ATTEMPTS = 100;
+
+    private final Path root;
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong bytesStored = new AtomicLong();
+
+    @Autowired
+    public LocalPhotoStorage(@Value("${storage.local.dir:photos}") String dir) throws IOException {
+        this(Path.of(dir));
+    }
+
+    LocalPhotoStorage(Path root) throws IOException {
+        this.root = root.toAbsolutePath().normalize();
+        Files.createDirectories(this.root);
+        logger.info("Photos are stored on the local filesystem in {}", this.root);
+    }
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return true;
+    }
+
+    @Override
+    public Mono<String> uploadPhoto(MultipartFile photo, String userName, String userEmail,
+                                    UploadProgressListener progressListener) {
+        return Mono.fromCallable(() -> store(photo, userName, null, progressListener))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<List<PhotoUploadResult>> uploadPhotos(List<MultipartFile> photos, String userName, String userEmail) {
+        return Flux.range(0, photos.size())
+            .concatMap(i -> Mono.fromCallable(() -> {
+                MultipartFile photo = photos.get(i);
+                try {
+                    String fileId = store(photo, userName, photos.size() > 1 ? String.valueOf(i + 1) : null,
+                        UploadProgressListener.NONE);
+                    return new PhotoUploadResult(photo.getOriginalFilename(), fileId, null);
+                } catch (IOException e) {
+                    logger.error("Failed to store photo {} of batch", photo.getOriginalFilename(), e);
+                    return new PhotoUploadResult(photo.getOriginalFilename(), null, e.getMessage());
+                }
+            }).subscribeOn(Schedulers.boundedElastic()))
+            .collectList();
+    }
+
+    @Override
+    public Mono<String> resolveUserFolder(String userName, String userEmail) {
+        return Mono.fromCallable(() -> idOf(userFolder(GoogleDriveService.sanitizeUserName(userName))))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<String> getFileInfo(String fileId) {
+        return Mono.fromCallable(() -> {
+            Path file = resolve(fileId);
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return String.format("File: %s, Size: %s bytes, Created: %s, View: %s",
+                file.getFileName(),
+                attributes.size(),
+                attributes.creationTime(),
+                file.toUri());
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Mono<Map<String, PhotoMetadata>> getMetadata(Collection<String> fileIds, String userEmail) {
+        return Mono.fromCallable(() -> {
+            Map<String, PhotoMetadata> found = new LinkedHashMap<>();
+            for (String fileId : new LinkedHashSet<>(fileIds)) {
+                try {
+                    found.put(fileId, metadataOf(resolve(fileId)));
+                } catch (NoSuchFileException e) {
+                    // Unknown IDs are left out
+                }
+            }
+            return found;
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Photo names start with the timestamp they were taken at, so newest first is reverse name order
+     */
+    @Override
+    public Flux<PhotoMetadata> listPhotos(String userName, String userEmail) {
+        String sanitizedUserName = GoogleDriveService.sanitizeUserName(userName);
+        Path folder = sanitizedUserName == null ? root : root.resolve(sanitizedUserName + "-fotos");
+        return Flux.defer(() -> Files.isDirectory(folder)
+                ? Flux.using(() -> Files.list(folder), Flux::fromStream, Stream::close)
+                : Flux.<Path>empty())
+            .filter(Files::isRegularFile)
+            .sort(Comparator.comparing((Path path) -> path.getFileName().toString()).reversed())
+            .map(path -> {
+                try {
+                    return metadataOf(path);
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to read photo metadata: " + e.getMessage(), e);
+                }
+            })
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private PhotoMetadata metadataOf(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return new PhotoMetadata(idOf(file), file.getFileName().toString(), Files.probeContentType(file),
+            attributes.size(), attributes.creationTime().toInstant(), file.toUri().toString());
+    }
+
+    /**
+     * Stored photo count and bytes
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("dir", root.toString());
+        stats.put("stored", stored.get());
+        stats.put("bytesStored", bytesStored.get());
+        return stats;
+    }
+
+    private String store(MultipartFile photo, String userName, String suffix,
+                         UploadProgressListener progressListener) throws IOException {
+        String sanitizedUserName = GoogleDriveService.sanitizeUserName(userName);
+        Path folder = userFolder(sanitizedUserName);
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+        String extension = GoogleDriveService.extensionFor(photo.getContentType());
+
+        // Drive allows duplicate names, a directory does not: photos taken in the same second get a counter
+        for (int attempt = 1; attempt <= MAX_NAME_ATTEMPTS; attempt++) {
+            String nameSuffix = attempt == 1 ? suffix
+                : suffix == null ? String.valueOf(attempt) : suffix + "-" + attempt;
+            Path target = folder.resolve(GoogleDriveService.buildFilename(sanitizedUserName, timestamp, nameSuffix,
+                extension));
+            FileChannel out;
+            try {
+                out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (FileAlreadyExistsException e) {
+                continue;
+            }
+            try (out) {
+                long written = transfer(photo, out, progressListener);
+                stored.incrementAndGet();
+                bytesStored.addAndGet(written);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(target);
+                throw e;
+            }
+            logger.debug("Stored photo {} as {}", photo.getOriginalFilename(), target);
+            return idOf(target);
+        }
+        throw new IOException("No free file name for photo in " + folder);
+    }
+
+    private static long transfer(MultipartFile photo, FileChannel out, UploadProgressListener progressListener)
+            throws IOException {
+        long total = photo.getSize();
+        if (photo instanceof FileBackedPhoto fileBacked) {
+            try (FileChannel source = FileChannel.open(fileBacked.getPath(), StandardOpenOption.READ)) {
+                long position = 0;
+                while (position < total) {
+                    long transferred = source.transferTo(fileBacked.getOffset() + position,
+                        Math.min(TRANSFER_CHUNK, total - position), out);
+                    if (transferred <= 0) {
+                        throw new IOException("Photo file " + fileBacked.getPath() + " ended after " + position
+                            + " of " + total + " bytes");
+                    }
+                    position += transferred;
+                    progressListener.onProgress(position, total);
+                }
+                return position;
+            }
+        }
+        try (InputStream in = photo.getInputStream();
+             ReadableByteChannel source = Channels.newChannel(in)) {
+            long position = 0;
+            long transferred;
+            while ((transferred = out.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                position += transferred;
+                progressListener.onProgress(position, total);
+            }
+            return position;
+        }
+    }
+
+    private Path userFolder(String sanitizedUserName) throws IOException {
+        Path folder = sanitizedUserName == null ? root : root.resolve(sanitizedUserName + "-fotos");
+        return Files.createDirectories(folder);
+    }
+
+    /**
+     * @throws NoSuchFileException If the ID does not name a photo inside the storage directory
+     */
+    private Path resolve(String fileId) throws NoSuchFileException {
+        Path file = root.resolve(fileId).normalize();
+        if (!file.startsWith(root) || !Files.isRegularFile(file)) {
+            throw new NoSuchFileException(fileId);
+        }
+        return file;
+    }
+
+    private String idOf(Path path) {
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+}
@@ -0,0 +1,96 @@
+package com.magumboi.webcameraapp.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * TTL and size bounded LRU cache of photo metadata keyed by (drive identity, file ID),
+ * so one identity is never served metadata another one fetched
+ */
+class MetadataCache {
+
+    record Key(String identity, String fileId) {
+    }
+
+    private record Entry(PhotoMetadata metadata, long expiresAtNanos) {
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<Key, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    MetadataCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    MetadataCache(int maxSize, Duration ttl, LongSupplier clock) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be at least 1");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > MetadataCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return The cached metadata, or null if absent or expired
+     */
+    synchronized PhotoMetadata get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAtNanos() - clock.getAsLong() > 0) {
+            hits.incrementAndGet();
+            return entry.metadata();
+        }
+        if (entry != null) {
+            entries.remove(key);
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    synchronized void put(Key key, PhotoMetadata metadata) {
+        entries.put(key, new Entry(metadata, clock.getAsLong() + ttlNanos));
+    }
+
+    synchronized void invalidate(Key key) {
+        entries.remove(key);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getEvictions() {
+        return evictions.get();
+    }
+}
@@ -0,0 +1,29 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.services.drive.model.File;
+
+import java.time.Instant;
+
+/**
+ * Metadata of a stored photo
+ * @param id Drive file ID, or the path relative to the storage directory for local storage
+ * @param name File name
+ * @param mimeType Image type, or null if unknown
+ * @param size Size in bytes, or null if unknown
+ * @param createdTime When the photo was stored, or null if unknown
+ * @param webViewLink Where to view the photo
+ */
+public record PhotoMetadata(String id, String name, String mimeType, Long size, Instant createdTime,
+                            String webViewLink) {
+
+    /**
+     * Drive fields a PhotoMetadata is built from, for field masks
+     */
+    static final String DRIVE_FIELDS = "id,name,mimeType,size,createdTime,webViewLink";
+
+    static PhotoMetadata of(File file) {
+        return new PhotoMetadata(file.getId(), file.getName(), file.getMimeType(), file.getSize(),
+            file.getCreatedTime() != null ? Instant.ofEpochMilli(file.getCreatedTime().getValue()) : null,
+            file.getWebViewLink());
+    }
+}
@@ -0,0 +1,15 @@
+package com.magumboi.webcameraapp.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+
+/**
+ * Processing stage applied to a photo before it is uploaded to Google Drive.
+ * Implementations may return the photo unchanged or a re-encoded copy whose
+ * content type matches its actual bytes.
+ */
+public interface PhotoProcessor {
+
+    MultipartFile process(MultipartFile photo) throws IOException;
+}
@@ -0,0 +1,66 @@
+package com.magumboi.webcameraapp.service;
+
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Where uploaded photos are stored: one folder per user ({@code <name>-fotos}) under a
+ * main folder, photos named {@code <name>-camera-photo-<timestamp>.<ext>}.
+ * {@link GoogleDriveService} is the default backend; {@link LocalPhotoStorage} keeps the
+ * same layout on the local filesystem for offline runs and load tests. {@code storage.backend}
+ * picks one, and only that one is created.
+ */
+public interface PhotoStorage {
+
+    /**
+     * @return Short backend name, e.g. for status endpoints
+     */
+    String getName();
+
+    boolean isConfigured();
+
+    /**
+     * Stores one photo in the user's folder
+     * @param userName Display name choosing the folder, or null for the main folder
+     * @param userEmail Account to store the photo for, where the backend supports it
+     * @return The ID of the stored photo
+     */
+    Mono<String> uploadPhoto(MultipartFile photo, String userName, String userEmail,
+                             UploadProgressListener progressListener);
+
+    /**
+     * Stores several photos for the same user
+     * @return One result per photo, in the order given
+     */
+    Mono<List<PhotoUploadResult>> uploadPhotos(List<MultipartFile> photos, String userName, String userEmail);
+
+    /**
+     * Finds or creates the user's folder
+     * @return The folder ID, or the main folder's for a blank user name
+     */
+    Mono<String> resolveUserFolder(String userName, String userEmail);
+
+    /**
+     * @return A one-line description of a stored photo
+     */
+    Mono<String> getFileInfo(String fileId);
+
+    /**
+     * Gets the metadata of many stored photos at once
+     * @param userEmail Account to look the photos up as, where the backend supports it
+     * @return The metadata by ID, in the order given; unknown IDs are left out
+     */
+    Mono<Map<String, PhotoMetadata>> getMetadata(Collection<String> fileIds, String userEmail);
+
+    /**
+     * Lists the photos in the user's folder, newest first, without creating the folder
+     * @param userName Display name choosing the folder, or null for the photos in the main folder
+     * @param userEmail Account to list the photos as, where the backend supports it
+     */
+    Flux<PhotoMetadata> listPhotos(String userName, String userEmail);
+}
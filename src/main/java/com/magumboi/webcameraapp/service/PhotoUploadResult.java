@@ -0,0 +1,14 @@
+package com.magumboi.webcameraapp.service;
+
+/**
+ * Outcome of one photo in a batch upload
+ * @param originalFilename The name the client sent the photo with
+ * @param fileId The Drive file ID, or null if the upload failed
+ * @param error Why the upload failed, or null on success
+ */
+public record PhotoUploadResult(String originalFilename, String fileId, String error) {
+
+    public boolean isSuccess() {
+        return fileId != null;
+    }
+}
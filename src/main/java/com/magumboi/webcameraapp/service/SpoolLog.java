@@ -0,0 +1,406 @@
+package com.magumboi.webcameraapp.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only on-disk log of photos waiting to be uploaded.
+ * <p>
+ * Records are appended to numbered segment files:
+ * {@code [magic][metadata length][data length][metadata JSON][photo bytes][CRC32]}.
+ * Appends are durable when {@link #append} returns; concurrent appends share one
+ * fsync (group commit). Drained records are listed in a per-segment {@code .done}
+ * file, and a segment is deleted once every record in it has been drained.
+ * On restart {@link #recover} returns the records that were never drained and
+ * truncates a torn record at the end of a segment.
+ */
+class SpoolLog implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpoolLog.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int MAGIC = 0x53504F4C;
+    private static final int HEADER_BYTES = 16;
+    private static final int CRC_BYTES = 4;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+
+    /**
+     * A spooled photo: its metadata and where its bytes live
+     */
+    record Entry(String id, long segment, long dataOffset, long dataLength, Map<String, String> metadata) {
+    }
+
+    private final Path directory;
+    private final long segmentMaxBytes;
+    private final Map<Long, AtomicInteger> outstanding = new ConcurrentHashMap<>();
+
+    private final Object writeLock = new Object();
+    private final Object syncLock = new Object();
+    private long activeSegment;
+    private FileChannel active;
+    private long activeSize;
+    private long writtenBytes;
+    private final AtomicLong durableBytes = new AtomicLong();
+
+    SpoolLog(Path directory, long segmentMaxBytes) {
+        this.directory = directory;
+        this.segmentMaxBytes = segmentMaxBytes;
+    }
+
+    /**
+     * Scans existing segments and opens a fresh segment for appends
+     * @return Records that were appended but never marked done, oldest first
+     */
+    List<Entry> recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        segments.sort(null);
+
+        List<Entry> pending = new ArrayList<>();
+        for (long segment : segments) {
+            List<Entry> segmentPending = recoverSegment(segment);
+            if (segmentPending.isEmpty()) {
+                deleteSegment(segment);
+            } else {
+                outstanding.put(segment, new AtomicInteger(segmentPending.size()));
+                pending.addAll(segmentPending);
+            }
+        }
+
+        synchronized (writeLock) {
+            openSegment(segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1);
+        }
+        return pending;
+    }
+
+    /**
+     * Appends a photo and forces it to disk before returning
+     */
+    Entry append(Map<String, String> metadata, InputStream data, long length) throws IOException {
+        String id = UUID.randomUUID().toString();
+        Map<String, String> record = new LinkedHashMap<>(metadata);
+        record.put("id", id);
+        byte[] meta = MAPPER.writeValueAsBytes(record);
+        Entry entry;
+        long end;
+        synchronized (writeLock) {
+            if (activeSize >= segmentMaxBytes) {
+                rollSegment();
+            }
+            long start = activeSize;
+            try {
+                entry = writeRecord(id, meta, data, length, record);
+            } catch (IOException e) {
+                // Drop the partial record so the segment stays readable
+                active.truncate(start);
+                active.position(start);
+                activeSize = start;
+                throw e;
+            }
+            writtenBytes += activeSize - start;
+            end = writtenBytes;
+            outstanding.computeIfAbsent(activeSegment, s -> new AtomicInteger()).incrementAndGet();
+        }
+        sync(end);
+        return entry;
+    }
+
+    /**
+     * The segment file holding an entry's photo bytes, at {@link Entry#dataOffset()}
+     */
+    Path pathOf(Entry entry) {
+        return segmentPath(entry.segment());
+    }
+
+    /**
+     * Opens a stream over the photo bytes of a spooled entry
+     */
+    InputStream open(Entry entry) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(entry.segment()), StandardOpenOption.READ);
+        channel.position(entry.dataOffset());
+        return new BoundedInputStream(Channels.newInputStream(channel), entry.dataLength());
+    }
+
+    /**
+     * Records that an entry reached Drive; deletes its segment once fully drained
+     */
+    void markDone(Entry entry) throws IOException {
+        Files.writeString(donePath(entry.segment()), entry.id() + "\n", StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        synchronized (writeLock) {
+            AtomicInteger remaining = outstanding.get(entry.segment());
+            if (remaining != null && remaining.decrementAndGet() <= 0 && entry.segment() != activeSegment) {
+                outstanding.remove(entry.segment());
+                deleteSegment(entry.segment());
+            }
+        }
+    }
+
+    int pendingCount() {
+        return outstanding.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (writeLock) {
+            if (active != null) {
+                active.force(false);
+                active.close();
+                active = null;
+            }
+        }
+    }
+
+    /**
+     * Group commit: the first waiter forces everything written so far,
+     * later waiters return as soon as their record is covered.
+     * The force runs outside the write lock, so appends go on while it is in progress.
+     */
+    private void sync(long end) throws IOException {
+        synchronized (syncLock) {
+            if (durableBytes.get() >= end) {
+                return;
+            }
+            FileChannel channel;
+            long written;
+            synchronized (writeLock) {
+                channel = active;
+                written = writtenBytes;
+            }
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // A segment roll closed the channel, after forcing it
+                if (durableBytes.get() < end) {
+                    throw e;
+                }
+                return;
+            }
+            durableBytes.accumulateAndGet(written, Math::max);
+        }
+    }
+
+    private Entry writeRecord(String id, byte[] meta, InputStream data, long length,
+                              Map<String, String> metadata) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(meta.length).putLong(length).flip();
+        writeFully(header);
+        writeFully(ByteBuffer.wrap(meta));
+
+        CRC32 crc = new CRC32();
+        crc.update(meta);
+        long dataOffset = active.position();
+        byte[] buffer = new byte[64 * 1024];
+        long remaining = length;
+        while (remaining > 0) {
+            int read = data.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read < 0) {
+                throw new IOException("Photo stream ended " + remaining + " bytes early");
+            }
+            crc.update(buffer, 0, read);
+            writeFully(ByteBuffer.wrap(buffer, 0, read));
+            remaining -= read;
+        }
+
+        ByteBuffer trailer = ByteBuffer.allocate(CRC_BYTES);
+        trailer.putInt((int) crc.getValue()).flip();
+        writeFully(trailer);
+        activeSize = active.position();
+        return new Entry(id, activeSegment, dataOffset, length, metadata);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            active.write(buffer);
+        }
+    }
+
+    private List<Entry> recoverSegment(long segment) throws IOException {
+        Set<String> done = new HashSet<>();
+        Path donePath = donePath(segment);
+        if (Files.exists(donePath)) {
+            done.addAll(Files.readAllLines(donePath, StandardCharsets.UTF_8));
+        }
+
+        List<Entry> pending = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                Entry entry = readRecord(channel, segment, position, size);
+                if (entry == null) {
+                    logger.warn("Truncating torn spool record in segment {} at offset {}", segment, position);
+                    channel.truncate(position);
+                    break;
+                }
+                if (!done.contains(entry.id())) {
+                    pending.add(entry);
+                }
+                position = entry.dataOffset() + entry.dataLength() + CRC_BYTES;
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * @return The record at the given position, or null when it is incomplete or corrupt
+     */
+    private Entry readRecord(FileChannel channel, long segment, long position, long size) throws IOException {
+        if (size - position < HEADER_BYTES) {
+            return null;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, header, position);
+        header.flip();
+        int magic = header.getInt();
+        int metaLength = header.getInt();
+        long dataLength = header.getLong();
+        long dataOffset = position + HEADER_BYTES + metaLength;
+        if (magic != MAGIC || metaLength < 0 || dataLength < 0 || dataOffset + dataLength + CRC_BYTES > size) {
+            return null;
+        }
+
+        ByteBuffer meta = ByteBuffer.allocate(metaLength);
+        readFully(channel, meta, position + HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(meta.array());
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long offset = dataOffset;
+        long end = dataOffset + dataLength;
+        while (offset < end) {
+            buffer.clear().limit((int) Math.min(buffer.capacity(), end - offset));
+            readFully(channel, buffer, offset);
+            crc.update(buffer.array(), 0, buffer.limit());
+            offset += buffer.limit();
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(CRC_BYTES);
+        readFully(channel, trailer, end);
+        trailer.flip();
+        if (trailer.getInt() != (int) crc.getValue()) {
+            return null;
+        }
+
+        Map<String, String> metadata = MAPPER.readValue(meta.array(), new TypeReference<>() { });
+        return new Entry(metadata.get("id"), segment, dataOffset, dataLength, metadata);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of spool segment");
+            }
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        active.force(false);
+        active.close();
+        durableBytes.accumulateAndGet(writtenBytes, Math::max);
+        long previous = activeSegment;
+        AtomicInteger remaining = outstanding.get(previous);
+        if (remaining == null || remaining.get() <= 0) {
+            outstanding.remove(previous);
+            deleteSegment(previous);
+        }
+        openSegment(previous + 1);
+    }
+
+    private void openSegment(long segment) throws IOException {
+        activeSegment = segment;
+        active = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        activeSize = active.size();
+        active.position(activeSize);
+    }
+
+    private void deleteSegment(long segment) throws IOException {
+        Files.deleteIfExists(segmentPath(segment));
+        Files.deleteIfExists(donePath(segment));
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve("segment-" + segment + ".log");
+    }
+
+    private Path donePath(long segment) {
+        return directory.resolve("segment-" + segment + ".done");
+    }
+
+    /**
+     * Stops reading at the end of one record's photo bytes
+     */
+    private static class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
+}
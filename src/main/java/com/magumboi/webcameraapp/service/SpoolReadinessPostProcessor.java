@@ -0,0 +1,74 @@
+package com.magumboi.webcameraapp.service;
+
+import org.springframework.boot.actuate.endpoint.SecurityContext;
+import org.springframework.boot.actuate.health.AdditionalHealthEndpointPath;
+import org.springframework.boot.actuate.health.HealthEndpointGroup;
+import org.springframework.boot.actuate.health.HealthEndpointGroups;
+import org.springframework.boot.actuate.health.HealthEndpointGroupsPostProcessor;
+import org.springframework.boot.actuate.health.HttpCodeStatusMapper;
+import org.springframework.boot.actuate.health.StatusAggregator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Takes the "drive" check out of the readiness group while the spool is enabled: uploads are
+ * accepted into the spool whatever Drive's state, so a Drive outage must not pull the instance
+ * out of the load balancer. Drive stays in /actuator/health and any other group.
+ */
+@Component
+@ConditionalOnProperty(name = "upload.spool.enabled", havingValue = "true")
+public class SpoolReadinessPostProcessor implements HealthEndpointGroupsPostProcessor {
+
+    static final String READINESS = "readiness";
+    static final String DRIVE = "drive";
+
+    @Override
+    public HealthEndpointGroups postProcessHealthEndpointGroups(HealthEndpointGroups groups) {
+        HealthEndpointGroup readiness = groups.get(READINESS);
+        if (readiness == null || !readiness.isMember(DRIVE)) {
+            return groups;
+        }
+        Map<String, HealthEndpointGroup> byName = new HashMap<>();
+        for (String name : groups.getNames()) {
+            byName.put(name, groups.get(name));
+        }
+        byName.put(READINESS, new WithoutDrive(readiness));
+        return HealthEndpointGroups.of(groups.getPrimary(), byName);
+    }
+
+    private record WithoutDrive(HealthEndpointGroup delegate) implements HealthEndpointGroup {
+
+        @Override
+        public boolean isMember(String name) {
+            return !DRIVE.equals(name) && delegate.isMember(name);
+        }
+
+        @Override
+        public boolean showComponents(SecurityContext securityContext) {
+            return delegate.showComponents(securityContext);
+        }
+
+        @Override
+        public boolean showDetails(SecurityContext securityContext) {
+            return delegate.showDetails(securityContext);
+        }
+
+        @Override
+        public StatusAggregator getStatusAggregator() {
+            return delegate.getStatusAggregator();
+        }
+
+        @Override
+        public HttpCodeStatusMapper getHttpCodeStatusMapper() {
+            return delegate.getHttpCodeStatusMapper();
+        }
+
+        @Override
+        public AdditionalHealthEndpointPath getAdditionalPath() {
+            return delegate.getAdditionalPath();
+        }
+    }
+}
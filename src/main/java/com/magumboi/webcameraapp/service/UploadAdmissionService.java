@@ -0,0 +1,311 @@
+package com.magumboi.webcameraapp.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission control for the upload endpoints.
+ * <p>
+ * Every upload is charged to a token bucket for its user (email, else name) and one
+ * for its client IP, so a single kiosk stuck in auto-capture runs out of tokens
+ * instead of filling the Drive executor. A global cap on uploads in flight protects
+ * the executor from many well-behaved clients at once. Buckets are single
+ * {@link AtomicLong}s updated with CAS (GCRA), so the hot path takes no locks.
+ */
+@Service
+public class UploadAdmissionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadAdmissionService.class);
+
+    private static final Duration CONCURRENCY_RETRY_AFTER = Duration.ofSeconds(1);
+
+    public enum Limit { USER, CLIENT_IP, CONCURRENCY }
+
+    private final boolean enabled;
+    private final RateLimit userLimit;
+    private final RateLimit ipLimit;
+    private final int maxInFlight;
+    private final int maxTrackedKeys;
+    private final boolean trustForwardedFor;
+    private final LongSupplier clock;
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Semaphore inFlight;
+    private final LongAdder admitted = new LongAdder();
+    private final Map<Limit, LongAdder> rejected = new EnumMap<>(Limit.class);
+
+    @Autowired(required = false)
+    private UploadMetrics metrics = UploadMetrics.NOOP;
+
+    @Autowired
+    public UploadAdmissionService(
+            @Value("${upload.admission.enabled:true}") boolean enabled,
+            @Value("${upload.admission.user.per-minute:30}") int userPerMinute,
+            @Value("${upload.admission.user.burst:10}") int userBurst,
+            @Value("${upload.admission.ip.per-minute:120}") int ipPerMinute,
+            @Value("${upload.admission.ip.burst:30}") int ipBurst,
+            @Value("${upload.admission.max-in-flight:32}") int maxInFlight,
+            @Value("${upload.admission.max-tracked-keys:10000}") int maxTrackedKeys,
+            @Value("${upload.admission.trust-forwarded-for:false}") boolean trustForwardedFor) {
+        this(enabled, new RateLimit(userPerMinute, userBurst), new RateLimit(ipPerMinute, ipBurst),
+            maxInFlight, maxTrackedKeys, trustForwardedFor, System::nanoTime);
+    }
+
+    UploadAdmissionService(boolean enabled, RateLimit userLimit, RateLimit ipLimit, int maxInFlight,
+                           int maxTrackedKeys, boolean trustForwardedFor, LongSupplier clock) {
+        this.enabled = enabled;
+        this.userLimit = userLimit;
+        this.ipLimit = ipLimit;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxTrackedKeys = Math.max(1, maxTrackedKeys);
+        this.trustForwardedFor = trustForwardedFor;
+        this.clock = clock;
+        this.inFlight = new Semaphore(this.maxInFlight);
+        for (Limit limit : Limit.values()) {
+            rejected.put(limit, new LongAdder());
+        }
+    }
+
+    @PostConstruct
+    void bindMetrics() {
+        metrics.bindAdmission(this);
+    }
+
+    /**
+     * Admits an upload of the given number of photos or rejects it
+     * @param clientIp The client address, see {@link #clientIp(String, String)}
+     * @return A permit that must be released when the upload finishes
+     * @throws UploadRejectedException If a rate limit or the in-flight cap is exceeded
+     * @throws IllegalArgumentException If there are more photos than {@link #getMaxBatch()}
+     */
+    public Permit admit(String userName, String userEmail, String clientIp, int photos) {
+        if (!enabled) {
+            return Permit.NONE;
+        }
+        long now = clock.getAsLong();
+        int cost = Math.max(1, photos);
+        if (cost > getMaxBatch()) {
+            throw new IllegalArgumentException("A batch of " + cost + " photos exceeds the burst of " + getMaxBatch());
+        }
+
+        String userKey = userKey(userName, userEmail);
+        TokenBucket userBucket = userKey != null ? bucket(userKey, now) : null;
+        if (userBucket != null) {
+            long waitNanos = userBucket.tryAcquire(userLimit, cost, now);
+            if (waitNanos > 0) {
+                throw reject(Limit.USER, Duration.ofNanos(waitNanos), userKey);
+            }
+        }
+
+        TokenBucket ipBucket = clientIp != null ? bucket("ip:" + clientIp, now) : null;
+        if (ipBucket != null) {
+            long waitNanos = ipBucket.tryAcquire(ipLimit, cost, now);
+            if (waitNanos > 0) {
+                // Not admitted, so the user is not charged either
+                if (userBucket != null) {
+                    userBucket.refund(userLimit, cost);
+                }
+                throw reject(Limit.CLIENT_IP, Duration.ofNanos(waitNanos), clientIp);
+            }
+        }
+
+        if (!inFlight.tryAcquire()) {
+            if (userBucket != null) {
+                userBucket.refund(userLimit, cost);
+            }
+            if (ipBucket != null) {
+                ipBucket.refund(ipLimit, cost);
+            }
+            throw reject(Limit.CONCURRENCY, CONCURRENCY_RETRY_AFTER, "global");
+        }
+        admitted.increment();
+        return new Permit(inFlight);
+    }
+
+    /**
+     * The address uploads are rate limited by: the first X-Forwarded-For hop when
+     * the app runs behind a trusted proxy, otherwise the socket peer
+     */
+    public String clientIp(String remoteAddr, String forwardedFor) {
+        if (trustForwardedFor && forwardedFor != null && !forwardedFor.isBlank()) {
+            String first = forwardedFor.split(",", 2)[0].trim();
+            if (!first.isEmpty()) {
+                return first;
+            }
+        }
+        return remoteAddr;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Most photos one upload may carry: a batch is charged one token per photo,
+     * so it can never be larger than the smaller bucket
+     */
+    public int getMaxBatch() {
+        return enabled ? Math.min(userLimit.burst(), ipLimit.burst()) : Integer.MAX_VALUE;
+    }
+
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    public int getTrackedKeys() {
+        return buckets.size();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("inFlight", getInFlight());
+        stats.put("maxInFlight", maxInFlight);
+        stats.put("trackedKeys", getTrackedKeys());
+        stats.put("admitted", admitted.sum());
+        Map<String, Long> rejections = new HashMap<>();
+        rejected.forEach((limit, count) -> rejections.put(limit.name().toLowerCase(Locale.ROOT), count.sum()));
+        stats.put("rejected", rejections);
+        return stats;
+    }
+
+    private UploadRejectedException reject(Limit limit, Duration retryAfter, String key) {
+        rejected.get(limit).increment();
+        metrics.recordRejection(limit);
+        logger.debug("Rejected upload for {} ({} limit), retry after {} ms", key, limit, retryAfter.toMillis());
+        return new UploadRejectedException(limit, retryAfter);
+    }
+
+    private TokenBucket bucket(String key, long now) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxTrackedKeys) {
+                evict(now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(now));
+        }
+        bucket.lastUsed = now;
+        return bucket;
+    }
+
+    /**
+     * A bucket that has refilled completely is indistinguishable from a new one, so it can go.
+     * If that is not enough (many keys active at once, e.g. IPs chosen by a client), the least
+     * recently used buckets go too, down to 90% of the limit so the scan is not repeated per key.
+     */
+    private void evict(long now) {
+        buckets.entrySet().removeIf(entry -> entry.getValue().isFull(now));
+        int excess = buckets.size() - maxTrackedKeys * 9 / 10;
+        if (excess > 0) {
+            buckets.entrySet().stream()
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().lastUsed))
+                .limit(excess)
+                .toList()
+                .forEach(entry -> buckets.remove(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * Users are identified by email when given, otherwise by name
+     */
+    static String userKey(String userName, String userEmail) {
+        if (userEmail != null && !userEmail.trim().isEmpty()) {
+            return "user:" + userEmail.trim().toLowerCase(Locale.ROOT);
+        }
+        if (userName != null && !userName.trim().isEmpty()) {
+            return "user:" + userName.trim().toLowerCase(Locale.ROOT);
+        }
+        return null;
+    }
+
+    /**
+     * Refill rate and bucket size
+     */
+    record RateLimit(long intervalNanos, int burst) {
+
+        RateLimit(int perMinute, int burst) {
+            this(Duration.ofMinutes(1).toNanos() / Math.max(1, perMinute), Math.max(1, burst));
+        }
+    }
+
+    /**
+     * Token bucket kept as the time it will be full again (the GCRA "theoretical
+     * arrival time"): taking n tokens pushes it n intervals further, and a request
+     * is refused when that would be more than burst intervals from now
+     */
+    static final class TokenBucket {
+
+        private final AtomicLong fullAt;
+        private volatile long lastUsed;
+
+        TokenBucket(long now) {
+            this.fullAt = new AtomicLong(now);
+            this.lastUsed = now;
+        }
+
+        /**
+         * @return 0 if the tokens were taken, otherwise nanos until they will be available
+         */
+        long tryAcquire(RateLimit limit, int tokens, long now) {
+            long cost = tokens * limit.intervalNanos();
+            long capacity = limit.burst() * limit.intervalNanos();
+            while (true) {
+                long current = fullAt.get();
+                long next = Math.max(current, now) + cost;
+                long excess = next - now - capacity;
+                if (excess > 0) {
+                    return excess;
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+
+        void refund(RateLimit limit, int tokens) {
+            fullAt.addAndGet(-tokens * limit.intervalNanos());
+        }
+
+        boolean isFull(long now) {
+            return fullAt.get() <= now;
+        }
+    }
+
+    /**
+     * A slot among the uploads in flight; releasing twice is harmless
+     */
+    public static class Permit {
+
+        static final Permit NONE = new Permit(null);
+
+        private final Semaphore semaphore;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(Semaphore semaphore) {
+            this.semaphore = semaphore;
+        }
+
+        public void release() {
+            if (semaphore != null && released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.magumboi.webcameraapp.service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * Outcome and latency of the last few uploads, in a fixed-size ring.
+ * Unlike the Micrometer timers this answers "how are uploads doing right now"
+ * without a metrics backend, for the status endpoints.
+ */
+class UploadLatencyWindow {
+
+    /**
+     * Uploads finished within the window; latencies are 0 when there were none
+     */
+    record Summary(int uploads, int failures, long p50Millis, long p95Millis, long p99Millis) {
+
+        /**
+         * @return Share of successful uploads, or 1 when there were none
+         */
+        double successRate() {
+            return uploads == 0 ? 1.0 : (double) (uploads - failures) / uploads;
+        }
+    }
+
+    private final long[] finishedAt;
+    private final long[] latencies;
+    private final boolean[] failed;
+    private final long maxAgeNanos;
+    private final LongSupplier clock;
+    private int next;
+    private int size;
+
+    UploadLatencyWindow(int capacity, Duration maxAge) {
+        this(capacity, maxAge, System::nanoTime);
+    }
+
+    UploadLatencyWindow(int capacity, Duration maxAge, LongSupplier clock) {
+        this.finishedAt = new long[capacity];
+        this.latencies = new long[capacity];
+        this.failed = new boolean[capacity];
+        this.maxAgeNanos = maxAge.toNanos();
+        this.clock = clock;
+    }
+
+    synchronized void record(long latencyNanos, boolean success) {
+        finishedAt[next] = clock.getAsLong();
+        latencies[next] = latencyNanos;
+        failed[next] = !success;
+        next = (next + 1) % latencies.length;
+        size = Math.min(size + 1, latencies.length);
+    }
+
+    /**
+     * Summarizes the uploads that finished within the max age
+     */
+    synchronized Summary summary() {
+        long now = clock.getAsLong();
+        long[] recent = new long[size];
+        int count = 0;
+        int failures = 0;
+        for (int i = 0; i < size; i++) {
+            if (now - finishedAt[i] <= maxAgeNanos) {
+                recent[count++] = latencies[i];
+                if (failed[i]) {
+                    failures++;
+                }
+            }
+        }
+        Arrays.sort(recent, 0, count);
+        return new Summary(count, failures,
+            percentile(recent, count, 0.50), percentile(recent, count, 0.95), percentile(recent, count, 0.99));
+    }
+
+    /**
+     * Nearest-rank percentile of the first count sorted latencies, in millis
+     */
+    private static long percentile(long[] sorted, int count, double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * count);
+        return Duration.ofNanos(sorted[Math.max(0, rank - 1)]).toMillis();
+    }
+}
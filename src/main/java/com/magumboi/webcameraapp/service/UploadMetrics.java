@@ -0,0 +1,210 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.client.http.HttpResponseException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Micrometer instrumentation of the upload hot path.
+ * <ul>
+ *   <li>{@code drive.upload} – end-to-end upload latency, tagged by outcome</li>
+ *   <li>{@code drive.upload.stage} – latency of each stage (client, folder, process, hash, content, execute); hash only with dedup enabled</li>
+ *   <li>{@code drive.upload.results} – uploads by outcome and HTTP status</li>
+ *   <li>{@code drive.upload.folder.fallback} – uploads that fell back to the main folder</li>
+ *   <li>{@code drive.upload.duplicates} – uploads skipped because the content was already in the folder</li>
+ *   <li>{@code drive.upload.direct} – direct-to-Drive upload sessions started, completed and rejected</li>
+ *   <li>{@code drive.executor.*} and {@code drive.cache.*} – executor saturation and cache gauges</li>
+ *   <li>{@code upload.admission.*} – uploads rejected by rate limits or the in-flight cap, and uploads in flight</li>
+ *   <li>{@code upload.spool.failed} – spooled photos given up on, because Drive rejected them or retries ran out</li>
+ * </ul>
+ * Timers publish percentiles and histograms so they can back latency SLOs in Prometheus.
+ * The outcomes of the last few uploads are also kept in memory for the status endpoints.
+ */
+@Component
+public class UploadMetrics {
+
+    /**
+     * Used when no registry is wired in, e.g. when the service is built by hand in tests
+     */
+    static final UploadMetrics NOOP = new UploadMetrics(new CompositeMeterRegistry());
+
+    public enum Stage { CLIENT, FOLDER, PROCESS, HASH, CONTENT, EXECUTE }
+
+    /**
+     * A timed stage
+     */
+    @FunctionalInterface
+    interface StageCall<T> {
+        T call() throws IOException;
+    }
+
+    private final MeterRegistry registry;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Timer successTimer;
+    private final Timer failureTimer;
+    private final Counter folderFallbacks;
+    private final Counter duplicates;
+    private final Counter duplicateBytes;
+    private final UploadLatencyWindow recentUploads = new UploadLatencyWindow(256, Duration.ofMinutes(15));
+
+    public UploadMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, latencyTimer("drive.upload.stage")
+                .description("Latency of one stage of a photo upload")
+                .tag("stage", stage.name().toLowerCase(Locale.ROOT))
+                .register(registry));
+        }
+        successTimer = latencyTimer("drive.upload").tag("outcome", "success")
+            .description("End-to-end latency of photo uploads").register(registry);
+        failureTimer = latencyTimer("drive.upload").tag("outcome", "failure")
+            .description("End-to-end latency of photo uploads").register(registry);
+        folderFallbacks = Counter.builder("drive.upload.folder.fallback")
+            .description("Uploads stored in the main folder because the user folder could not be resolved")
+            .register(registry);
+        duplicates = Counter.builder("drive.upload.duplicates")
+            .description("Uploads skipped because identical content was already in the target folder")
+            .register(registry);
+        duplicateBytes = Counter.builder("drive.upload.duplicates.bytes")
+            .description("Photo bytes not sent to Drive thanks to deduplication")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    <T> T time(Stage stage, StageCall<T> call) throws IOException {
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            return call.call();
+        } finally {
+            sample.stop(stageTimers.get(stage));
+        }
+    }
+
+    Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    void recordSuccess(Timer.Sample sample) {
+        recentUploads.record(sample.stop(successTimer), true);
+        registry.counter("drive.upload.results", "outcome", "success", "status", "200").increment();
+    }
+
+    void recordFailure(Timer.Sample sample, Throwable error) {
+        recentUploads.record(sample.stop(failureTimer), false);
+        registry.counter("drive.upload.results", "outcome", "failure", "status", failureStatus(error)).increment();
+    }
+
+    /**
+     * Success rate and latency percentiles of the last 256 uploads of the past 15 minutes
+     */
+    UploadLatencyWindow.Summary getRecentUploads() {
+        return recentUploads.summary();
+    }
+
+    void recordFolderFallback() {
+        folderFallbacks.increment();
+    }
+
+    void recordDuplicate(long bytes) {
+        duplicates.increment();
+        duplicateBytes.increment(bytes);
+    }
+
+    /**
+     * @param phase started, completed or rejected
+     */
+    void recordDirectUpload(String phase) {
+        registry.counter("drive.upload.direct", "phase", phase).increment();
+    }
+
+    /**
+     * @param reason rejected (not retryable) or exhausted (out of attempts)
+     */
+    void recordSpoolFailure(String reason) {
+        registry.counter("upload.spool.failed", "reason", reason).increment();
+    }
+
+    void bindExecutor(DriveExecutor executor) {
+        Gauge.builder("drive.executor.queued", executor, DriveExecutor::getQueueDepth)
+            .description("Drive calls waiting for a concurrency permit").register(registry);
+        Gauge.builder("drive.executor.active", executor, DriveExecutor::getActiveCount)
+            .description("Drive calls running").register(registry);
+        Gauge.builder("drive.executor.limit", executor, DriveExecutor::getMaxConcurrent)
+            .description("Max Drive calls running at once").register(registry);
+        FunctionCounter.builder("drive.executor.completed", executor, DriveExecutor::getCompletedCount)
+            .description("Drive calls finished").register(registry);
+    }
+
+    void bindCaches(DriveClientCache clientCache, FolderCache folderCache) {
+        FunctionCounter.builder("drive.cache.requests", clientCache, DriveClientCache::getHits)
+            .tags("cache", "client", "result", "hit").register(registry);
+        FunctionCounter.builder("drive.cache.requests", clientCache, DriveClientCache::getMisses)
+            .tags("cache", "client", "result", "miss").register(registry);
+        FunctionCounter.builder("drive.cache.requests", folderCache, FolderCache::getHits)
+            .tags("cache", "folder", "result", "hit").register(registry);
+        FunctionCounter.builder("drive.cache.requests", folderCache, FolderCache::getMisses)
+            .tags("cache", "folder", "result", "miss").register(registry);
+    }
+
+    void bindMetadataCache(MetadataCache metadataCache) {
+        FunctionCounter.builder("drive.cache.requests", metadataCache, MetadataCache::getHits)
+            .tags("cache", "metadata", "result", "hit").register(registry);
+        FunctionCounter.builder("drive.cache.requests", metadataCache, MetadataCache::getMisses)
+            .tags("cache", "metadata", "result", "miss").register(registry);
+    }
+
+    void bindDedup(DedupIndex dedupIndex) {
+        FunctionCounter.builder("drive.cache.requests", dedupIndex, DedupIndex::getHits)
+            .tags("cache", "dedup", "result", "hit").register(registry);
+        FunctionCounter.builder("drive.cache.requests", dedupIndex, DedupIndex::getMisses)
+            .tags("cache", "dedup", "result", "miss").register(registry);
+    }
+
+    void recordRejection(UploadAdmissionService.Limit limit) {
+        registry.counter("upload.admission.rejected", "limit", limit.name().toLowerCase(Locale.ROOT)).increment();
+    }
+
+    void bindAdmission(UploadAdmissionService admission) {
+        Gauge.builder("upload.admission.in_flight", admission, UploadAdmissionService::getInFlight)
+            .description("Uploads admitted and not yet finished").register(registry);
+        Gauge.builder("upload.admission.tracked_keys", admission, UploadAdmissionService::getTrackedKeys)
+            .description("Users and client IPs with a rate limit bucket").register(registry);
+    }
+
+    /**
+     * HTTP status of the Drive error behind a failed upload, or a short error kind
+     */
+    static String failureStatus(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DriveUnavailableException) {
+                return "circuit_open";
+            }
+            if (cause instanceof HttpResponseException http) {
+                return String.valueOf(http.getStatusCode());
+            }
+        }
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return "io";
+            }
+        }
+        return "error";
+    }
+
+    private static Timer.Builder latencyTimer(String name) {
+        return Timer.builder(name)
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .publishPercentileHistogram();
+    }
+}
@@ -0,0 +1,16 @@
+package com.magumboi.webcameraapp.service;
+
+/**
+ * Receives progress updates while a photo is sent to its storage backend
+ */
+@FunctionalInterface
+public interface UploadProgressListener {
+
+    UploadProgressListener NONE = (bytesUploaded, totalBytes) -> { };
+
+    /**
+     * @param bytesUploaded Bytes acknowledged by the backend so far
+     * @param totalBytes Size of the photo in bytes
+     */
+    void onProgress(long bytesUploaded, long totalBytes);
+}
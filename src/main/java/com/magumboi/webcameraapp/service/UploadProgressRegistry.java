@@ -0,0 +1,58 @@
+package com.magumboi.webcameraapp.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the latest progress of recent uploads, keyed by the client supplied upload ID,
+ * so clients can poll it while a large photo is being sent to Drive
+ */
+@Component
+public class UploadProgressRegistry {
+
+    private static final int MAX_TRACKED_UPLOADS = 1000;
+
+    public enum State { IN_PROGRESS, COMPLETED, FAILED }
+
+    public record Progress(String uploadId, long bytesUploaded, long totalBytes, State state) {
+    }
+
+    private final Map<String, Progress> uploads = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Progress> eldest) {
+            return size() > MAX_TRACKED_UPLOADS;
+        }
+    };
+
+    /**
+     * Starts tracking an upload and returns the listener that updates it
+     */
+    public synchronized UploadProgressListener start(String uploadId, long totalBytes) {
+        uploads.put(uploadId, new Progress(uploadId, 0, totalBytes, State.IN_PROGRESS));
+        return (bytesUploaded, total) -> update(uploadId, bytesUploaded, total, State.IN_PROGRESS);
+    }
+
+    public synchronized void complete(String uploadId) {
+        Progress progress = uploads.get(uploadId);
+        if (progress != null) {
+            uploads.put(uploadId, new Progress(uploadId, progress.totalBytes(), progress.totalBytes(), State.COMPLETED));
+        }
+    }
+
+    public synchronized void fail(String uploadId) {
+        Progress progress = uploads.get(uploadId);
+        if (progress != null) {
+            uploads.put(uploadId, new Progress(uploadId, progress.bytesUploaded(), progress.totalBytes(), State.FAILED));
+        }
+    }
+
+    public synchronized Progress get(String uploadId) {
+        return uploads.get(uploadId);
+    }
+
+    private synchronized void update(String uploadId, long bytesUploaded, long totalBytes, State state) {
+        uploads.put(uploadId, new Progress(uploadId, bytesUploaded, totalBytes, state));
+    }
+}
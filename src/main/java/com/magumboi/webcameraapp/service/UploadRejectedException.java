@@ -0,0 +1,45 @@
+package com.magumboi.webcameraapp.service;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Thrown when admission control turns an upload away before any work is done
+ */
+public class UploadRejectedException extends RuntimeException {
+
+    private final UploadAdmissionService.Limit limit;
+    private final Duration retryAfter;
+
+    public UploadRejectedException(UploadAdmissionService.Limit limit, Duration retryAfter) {
+        super("Too many uploads (" + limit.name().toLowerCase(Locale.ROOT) + " limit), retry in "
+            + ceilSeconds(retryAfter) + "s");
+        this.limit = limit;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * The limit that was exceeded
+     */
+    public UploadAdmissionService.Limit getLimit() {
+        return limit;
+    }
+
+    /**
+     * How long until the request would be admitted
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Value for the Retry-After header, rounded up so clients never retry too early
+     */
+    public long getRetryAfterSeconds() {
+        return ceilSeconds(retryAfter);
+    }
+
+    private static long ceilSeconds(Duration duration) {
+        return Math.max(1, (duration.toMillis() + 999) / 1000);
+    }
+}
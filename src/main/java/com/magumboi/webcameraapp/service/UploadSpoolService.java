@@ -0,0 +1,373 @@
+package com.magumboi.webcameraapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.client.http.HttpResponseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-ahead spool in front of Google Drive.
+ * Photos are appended to a local on-disk log and acknowledged immediately;
+ * background drainers push them to Drive with bounded parallelism and retry
+ * failures later. Pending photos are picked up again after a restart.
+ * A photo Drive rejects for good (a 4xx other than rate limits) or that still fails after
+ * {@code upload.spool.max-attempts} is moved to the {@code failed} directory of the spool
+ * with its metadata, and no longer retried.
+ */
+@Service
+public class UploadSpoolService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadSpoolService.class);
+    private static final int MAX_TRACKED_STATUSES = 10_000;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public enum State { PENDING, UPLOADED, FAILED }
+
+    public record Status(String spoolId, State state, int attempts, String fileId, String lastError) {
+    }
+
+    @Value("${upload.spool.enabled:false}")
+    private boolean enabled;
+
+    @Value("${upload.spool.dir:spool}")
+    private String spoolDir;
+
+    @Value("${upload.spool.segment-size:64MB}")
+    private DataSize segmentSize;
+
+    @Value("${upload.spool.drain-parallelism:2}")
+    private int drainParallelism;
+
+    @Value("${upload.spool.retry-delay:30s}")
+    private Duration retryDelay;
+
+    @Value("${upload.spool.max-attempts:10}")
+    private int maxAttempts;
+
+    @Autowired
+    private PhotoStorage photoStorage;
+
+    @Autowired(required = false)
+    private UploadMetrics metrics = UploadMetrics.NOOP;
+
+    private SpoolLog spoolLog;
+    private ExecutorService drainers;
+    private ScheduledExecutorService retryScheduler;
+    private final BlockingQueue<SpoolLog.Entry> queue = new LinkedBlockingQueue<>();
+    private final Map<String, Integer> attempts = new HashMap<>();
+    private final AtomicLong drained = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private volatile boolean running;
+
+    private final Map<String, Status> statuses = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Status> eldest) {
+            return size() > MAX_TRACKED_STATUSES;
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            logger.info("Upload spool is disabled, photos are uploaded synchronously");
+            return;
+        }
+
+        try {
+            spoolLog = new SpoolLog(Paths.get(spoolDir), segmentSize.toBytes());
+            List<SpoolLog.Entry> recovered = spoolLog.recover();
+            for (SpoolLog.Entry entry : recovered) {
+                updateStatus(entry.id(), State.PENDING, null, null);
+            }
+            queue.addAll(recovered);
+
+            running = true;
+            drainers = Executors.newFixedThreadPool(drainParallelism);
+            retryScheduler = Executors.newSingleThreadScheduledExecutor();
+            for (int i = 0; i < drainParallelism; i++) {
+                drainers.execute(this::drainLoop);
+            }
+            logger.info("Upload spool started in {} with {} pending photos and {} drainers",
+                spoolDir, recovered.size(), drainParallelism);
+        } catch (IOException e) {
+            logger.error("Failed to initialize upload spool", e);
+            throw new RuntimeException("Failed to initialize upload spool", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled || spoolLog == null) {
+            return;
+        }
+        running = false;
+        retryScheduler.shutdownNow();
+        drainers.shutdownNow();
+        try {
+            drainers.awaitTermination(10, TimeUnit.SECONDS);
+            spoolLog.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.warn("Failed to close upload spool", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Durably spools a photo for background upload
+     * @return The spool ID to acknowledge to the client
+     */
+    public String enqueue(MultipartFile photo, String userName, String userEmail) throws IOException {
+        if (!enabled) {
+            throw new IllegalStateException("Upload spool is not enabled");
+        }
+        Map<String, String> metadata = new HashMap<>();
+        putIfPresent(metadata, "userName", userName);
+        putIfPresent(metadata, "userEmail", userEmail);
+        putIfPresent(metadata, "contentType", photo.getContentType());
+        putIfPresent(metadata, "originalFilename", photo.getOriginalFilename());
+
+        SpoolLog.Entry entry;
+        try (InputStream data = photo.getInputStream()) {
+            entry = spoolLog.append(metadata, data, photo.getSize());
+        }
+        updateStatus(entry.id(), State.PENDING, null, null);
+        queue.add(entry);
+        logger.debug("Spooled photo {} ({} bytes)", entry.id(), entry.dataLength());
+        return entry.id();
+    }
+
+    public Status getStatus(String spoolId) {
+        synchronized (statuses) {
+            return statuses.get(spoolId);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", enabled);
+        if (spoolLog != null) {
+            stats.put("pending", spoolLog.pendingCount());
+            stats.put("queued", queue.size());
+            stats.put("drained", drained.get());
+            stats.put("failedAttempts", failedAttempts.get());
+            stats.put("deadLettered", deadLettered.get());
+        }
+        return stats;
+    }
+
+    private void drainLoop() {
+        while (running) {
+            SpoolLog.Entry entry;
+            try {
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            drain(entry);
+        }
+    }
+
+    private void drain(SpoolLog.Entry entry) {
+        Map<String, String> metadata = entry.metadata();
+        int attempt;
+        synchronized (attempts) {
+            attempt = attempts.merge(entry.id(), 1, Integer::sum);
+        }
+        try {
+            String fileId = photoStorage.uploadPhoto(new SpooledPhoto(entry), metadata.get("userName"),
+                metadata.get("userEmail"), UploadProgressListener.NONE).block();
+            spoolLog.markDone(entry);
+            synchronized (attempts) {
+                attempts.remove(entry.id());
+            }
+            drained.incrementAndGet();
+            updateStatus(entry.id(), State.UPLOADED, fileId, null);
+            logger.info("Drained spooled photo {} to Google Drive (ID: {}) after {} attempt(s)",
+                entry.id(), fileId, attempt);
+        } catch (Exception e) {
+            failedAttempts.incrementAndGet();
+            boolean retryable = isRetryable(e);
+            if ((!retryable || attempt >= maxAttempts) && deadLetter(entry, e, attempt, retryable)) {
+                return;
+            }
+            updateStatus(entry.id(), State.PENDING, null, e.getMessage());
+            long delayMillis = retryDelay.toMillis() * Math.min(attempt, 10);
+            logger.warn("Failed to drain spooled photo {} (attempt {}), retrying in {} ms: {}",
+                entry.id(), attempt, delayMillis, e.getMessage());
+            if (running) {
+                retryScheduler.schedule(() -> queue.add(entry), delayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Whether a failed drain may succeed later: Drive outages, rate limits and I/O errors are,
+     * requests Drive refused (other 4xx) or the storage rejected as invalid are not
+     */
+    static boolean isRetryable(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DriveUnavailableException) {
+                return true;
+            }
+            if (cause instanceof HttpResponseException http) {
+                return DriveResilience.isRetryable(http);
+            }
+            if (cause instanceof IllegalArgumentException) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves a photo that will not be retried out of the spool, into {@code failed/<id>.bin}
+     * next to its metadata in {@code failed/<id>.json}
+     * @return Whether it was moved; if not it stays pending and is retried
+     */
+    private boolean deadLetter(SpoolLog.Entry entry, Exception error, int attempt, boolean retryable) {
+        try {
+            Path failedDir = Files.createDirectories(Paths.get(spoolDir, "failed"));
+            try (InputStream in = spoolLog.open(entry)) {
+                Files.copy(in, failedDir.resolve(entry.id() + ".bin"), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Map<String, Object> record = new LinkedHashMap<>(entry.metadata());
+            record.put("attempts", attempt);
+            record.put("error", String.valueOf(error.getMessage()));
+            MAPPER.writeValue(failedDir.resolve(entry.id() + ".json").toFile(), record);
+            spoolLog.markDone(entry);
+        } catch (IOException e) {
+            logger.error("Failed to move spooled photo {} to the failed directory", entry.id(), e);
+            return false;
+        }
+        updateStatus(entry.id(), State.FAILED, null, error.getMessage());
+        synchronized (attempts) {
+            attempts.remove(entry.id());
+        }
+        deadLettered.incrementAndGet();
+        metrics.recordSpoolFailure(retryable ? "exhausted" : "rejected");
+        logger.error("Gave up on spooled photo {} after {} attempt(s), moved to {}/failed: {}",
+            entry.id(), attempt, spoolDir, error.getMessage());
+        return true;
+    }
+
+    private void updateStatus(String spoolId, State state, String fileId, String lastError) {
+        int attempt;
+        synchronized (attempts) {
+            attempt = attempts.getOrDefault(spoolId, 0);
+        }
+        synchronized (statuses) {
+            statuses.put(spoolId, new Status(spoolId, state, attempt, fileId, lastError));
+        }
+    }
+
+    private static void putIfPresent(Map<String, String> metadata, String key, String value) {
+        if (value != null && !value.trim().isEmpty()) {
+            metadata.put(key, value);
+        }
+    }
+
+    /**
+     * Presents a spooled record to the photo storage as an uploaded file,
+     * streaming its bytes straight from the spool segment
+     */
+    private class SpooledPhoto implements FileBackedPhoto {
+
+        private final SpoolLog.Entry entry;
+
+        SpooledPhoto(SpoolLog.Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return entry.metadata().get("originalFilename");
+        }
+
+        @Override
+        public String getContentType() {
+            return entry.metadata().get("contentType");
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return entry.dataLength() == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return entry.dataLength();
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            try (InputStream in = getInputStream()) {
+                return in.readAllBytes();
+            }
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return spoolLog.open(entry);
+        }
+
+        @Override
+        public Path getPath() {
+            return spoolLog.pathOf(entry);
+        }
+
+        @Override
+        public long getOffset() {
+            return entry.dataOffset();
+        }
+
+        @Override
+        public void transferTo(java.io.File dest) throws IOException {
+            transferTo(dest.toPath());
+        }
+
+        @Override
+        public void transferTo(Path dest) throws IOException {
+            try (InputStream in = getInputStream()) {
+                Files.copy(in, dest, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+}
@@ -1197,6 +1197,27 @@ cameraOutput.addEventListener('click', function () {
     }
 });
 
+// One Idempotency-Key and filename per photo, so uploading the same shot again
+// (auto-upload on close, then "Subir", or a retry) does not store it twice
+const MAX_UPLOAD_ATTEMPTS = 20;
+const uploadAttempts = new Map();
+
+function uploadAttemptFor(imageDataUrl) {
+    let attempt = uploadAttempts.get(imageDataUrl);
+    if (!attempt) {
+        const timestamp = new Date().toISOString().replace(/[:.]/g, '-');
+        const key = window.crypto && crypto.randomUUID
+            ? crypto.randomUUID()
+            : `${Date.now()}-${Math.random().toString(36).slice(2)}`;
+        attempt = { key, filename: `camera-photo-${timestamp}.jpg` };
+        uploadAttempts.set(imageDataUrl, attempt);
+        if (uploadAttempts.size > MAX_UPLOAD_ATTEMPTS) {
+            uploadAttempts.delete(uploadAttempts.keys().next().value);
+        }
+    }
+    return attempt;
+}
+
 // Function to upload photo
 async function uploadPhoto(imageDataUrl, showMessages = true) {
     try {
@@ -1225,10 +1246,9 @@ async function uploadPhoto(imageDataUrl, showMessages = true) {
 
         // Create form data for the backend endpoint
         const formData = new FormData();
-        const timestamp = new Date().toISOString().replace(/[:.]/g, '-');
-        const filename = `camera-photo-${timestamp}.jpg`;
+        const attempt = uploadAttemptFor(imageDataUrl);
 
-        formData.append('file', blob, filename);
+        formData.append('file', blob, attempt.filename);
         
         // Include user name if available
         if (userName && userName.trim() !== '') {
@@ -1238,6 +1258,7 @@ async function uploadPhoto(imageDataUrl, showMessages = true) {
         // Send to our backend endpoint
         const uploadResponse = await fetch('/api/upload-photo', {
             method: 'POST',
+            headers: { 'Idempotency-Key': attempt.key },
             body: formData
         });
 
@@ -0,0 +1,52 @@
+package com.magumboi.webcameraapp.controller;
+
+import com.magumboi.webcameraapp.service.DriveStatusSampler;
+import com.magumboi.webcameraapp.service.IdempotencyRegistry;
+import com.magumboi.webcameraapp.service.PhotoStorage;
+import com.magumboi.webcameraapp.service.UploadAdmissionService;
+import com.magumboi.webcameraapp.service.UploadProgressRegistry;
+import com.magumboi.webcameraapp.service.UploadSpoolService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * The upload and status endpoints without any Drive bean
+ */
+@WebMvcTest({PhotoUploadController.class, DirectUploadController.class, UploadStatusController.class})
+@Import({PhotoUploadHandler.class, UploadProgressRegistry.class, UploadAdmissionService.class,
+    IdempotencyRegistry.class, DriveStatusSampler.class})
+@TestPropertySource(properties = "storage.backend=local")
+class LocalStorageControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private PhotoStorage photoStorage;
+
+    @MockBean
+    private UploadSpoolService uploadSpoolService;
+
+    @Test
+    void testDriveOnlyEndpointsAreAbsent() throws Exception {
+        when(photoStorage.getName()).thenReturn("local");
+
+        mockMvc.perform(post("/api/upload-sessions").param("userName", "Ana"))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/drive-circuit-breakers"))
+            .andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/impersonation-status"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.impersonationEnabled").value(false));
+    }
+}
@@ -0,0 +1,79 @@
+package com.magumboi.webcameraapp.controller;
+
+import com.magumboi.webcameraapp.service.PhotoMetadata;
+import com.magumboi.webcameraapp.service.PhotoStorage;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(PhotoMetadataController.class)
+class PhotoMetadataControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private PhotoStorage photoStorage;
+
+    private final PhotoMetadata photo = new PhotoMetadata("file-1", "Ana-camera-photo.jpg", "image/jpeg", 2048L,
+        Instant.parse("2026-01-02T03:04:05Z"), "https://drive.example/file-1");
+
+    @Test
+    void testMetadataOfManyFilesReportsMissingOnes() throws Exception {
+        when(photoStorage.getMetadata(eq(List.of("file-1", "file-2")), eq("ana@test.com")))
+            .thenReturn(Mono.just(Map.of("file-1", photo)));
+
+        MvcResult result = mockMvc.perform(get("/api/photos/metadata")
+                .param("ids", "file-1,file-2,file-1")
+                .param("userEmail", "ana@test.com"))
+            .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.files[0].name").value("Ana-camera-photo.jpg"))
+            .andExpect(jsonPath("$.files[0].size").value(2048))
+            .andExpect(jsonPath("$.missing[0]").value("file-2"));
+    }
+
+    @Test
+    void testTooManyIdsAreRejected() throws Exception {
+        String ids = IntStream.range(0, 501).mapToObj(i -> "file-" + i).collect(Collectors.joining(","));
+        MvcResult result = mockMvc.perform(get("/api/photos/metadata").param("ids", ids)).andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isBadRequest());
+        verify(photoStorage, never()).getMetadata(any(), any());
+    }
+
+    @Test
+    void testListingIsStreamedAsNdjson() throws Exception {
+        when(photoStorage.listPhotos("Ana", null)).thenReturn(Flux.just(photo, photo));
+
+        MvcResult result = mockMvc.perform(get("/api/photos").param("userName", "Ana")
+                .accept(MediaType.APPLICATION_NDJSON))
+            .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+            .andExpect(content().string(containsString("\"createdTime\":\"2026-01-02T03:04:05Z\"")));
+    }
+}
@@ -0,0 +1,272 @@
+package com.magumboi.webcameraapp.controller;
+
+import com.magumboi.webcameraapp.service.DirectUpload;
+import com.magumboi.webcameraapp.service.DriveStatusSampler;
+import com.magumboi.webcameraapp.service.GoogleDriveService;
+import com.magumboi.webcameraapp.service.IdempotencyRegistry;
+import com.magumboi.webcameraapp.service.PhotoUploadResult;
+import com.magumboi.webcameraapp.service.UploadAdmissionService;
+import com.magumboi.webcameraapp.service.UploadProgressListener;
+import com.magumboi.webcameraapp.service.UploadProgressRegistry;
+import com.magumboi.webcameraapp.service.UploadSpoolService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest({PhotoUploadController.class, DirectUploadController.class, UploadStatusController.class})
+@Import({PhotoUploadHandler.class, UploadProgressRegistry.class, UploadAdmissionService.class,
+    IdempotencyRegistry.class, DriveStatusSampler.class})
+@TestPropertySource(properties = "upload.admission.ip.burst=1000")
+class PhotoUploadControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private GoogleDriveService googleDriveService;
+
+    @MockBean
+    private UploadSpoolService uploadSpoolService;
+
+    private final MockMultipartFile photo =
+        new MockMultipartFile("file", "photo.jpg", "image/jpeg", new byte[] {1, 2, 3});
+
+    @Test
+    void testUploadCompletesAsynchronously() throws Exception {
+        when(googleDriveService.uploadPhoto(any(), eq(" Ana "), eq("ana@test.com"), any()))
+            .thenReturn(Mono.just("file-123"));
+
+        MvcResult result = mockMvc.perform(multipart("/api/upload-photo").file(photo)
+                .param("userName", " Ana ")
+                .param("userEmail", "ana@test.com"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.message").value("Photo uploaded successfully to Google Drive"))
+            .andExpect(jsonPath("$.fileId").value("file-123"))
+            .andExpect(jsonPath("$.uploadedFor").value("Ana"))
+            .andExpect(jsonPath("$.uploadedToAccount").value("ana@test.com"));
+    }
+
+    @Test
+    void testUploadFailureMapsToServerError() throws Exception {
+        when(googleDriveService.uploadPhoto(any(), any(), any(), any()))
+            .thenReturn(Mono.error(new RuntimeException("quota exceeded")));
+
+        MvcResult result = mockMvc.perform(multipart("/api/upload-photo").file(photo))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isInternalServerError())
+            .andExpect(jsonPath("$.error").value("Failed to upload photo to Google Drive: quota exceeded"));
+    }
+
+    @Test
+    void testProgressIsTrackedByUploadId() throws Exception {
+        when(googleDriveService.uploadPhoto(any(), any(), any(), any()))
+            .thenAnswer(invocation -> {
+                UploadProgressListener listener = invocation.getArgument(3);
+                listener.onProgress(2, 3);
+                return Mono.just("file-123");
+            });
+
+        mockMvc.perform(get("/api/upload-progress/shot-1"))
+            .andExpect(status().isNotFound());
+
+        MvcResult result = mockMvc.perform(multipart("/api/upload-photo").file(photo).param("uploadId", "shot-1"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/upload-progress/shot-1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.bytesUploaded").value(3))
+            .andExpect(jsonPath("$.totalBytes").value(3))
+            .andExpect(jsonPath("$.state").value("COMPLETED"));
+    }
+
+    @Test
+    void testSpooledUploadIsAcknowledgedImmediately() throws Exception {
+        when(uploadSpoolService.isEnabled()).thenReturn(true);
+        when(uploadSpoolService.enqueue(any(), eq("Ana"), any())).thenReturn("spool-1");
+
+        MvcResult result = mockMvc.perform(multipart("/api/upload-photo").file(photo).param("userName", "Ana"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isAccepted())
+            .andExpect(jsonPath("$.spoolId").value("spool-1"))
+            .andExpect(jsonPath("$.uploadedFor").value("Ana"));
+    }
+
+    @Test
+    void testBatchUploadReturnsPerFileResults() throws Exception {
+        when(googleDriveService.uploadPhotos(any(), eq("Ana"), any()))
+            .thenReturn(Mono.just(List.of(
+                new PhotoUploadResult("a.jpg", "file-1", null),
+                new PhotoUploadResult("b.jpg", null, "quota exceeded"))));
+
+        MvcResult result = mockMvc.perform(multipart("/api/upload-photos")
+                .file(new MockMultipartFile("files", "a.jpg", "image/jpeg", new byte[] {1}))
+                .file(new MockMultipartFile("files", "b.jpg", "image/jpeg", new byte[] {2}))
+                .param("userName", "Ana"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.uploaded").value(1))
+            .andExpect(jsonPath("$.failed").value(1))
+            .andExpect(jsonPath("$.results[0].fileId").value("file-1"))
+            .andExpect(jsonPath("$.results[1].error").value("quota exceeded"));
+    }
+
+    @Test
+    void testRejectsNonImage() throws Exception {
+        MockMultipartFile text = new MockMultipartFile("file", "notes.txt", "text/plain", new byte[] {1});
+
+        MvcResult result = mockMvc.perform(multipart("/api/upload-photo").file(text)).andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.error").value("File must be an image"));
+    }
+
+    @Test
+    void testUserOverRateLimitGetsTooManyRequests() throws Exception {
+        when(googleDriveService.uploadPhoto(any(), any(), eq("kiosk@test.com"), any()))
+            .thenReturn(Mono.just("file-1"));
+
+        // The default burst is 10 uploads
+        for (int i = 0; i < 10; i++) {
+            MvcResult result = mockMvc.perform(multipart("/api/upload-photo").file(photo)
+                    .param("userEmail", "kiosk@test.com"))
+                .andReturn();
+            mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        }
+
+        MvcResult rejected = mockMvc.perform(multipart("/api/upload-photo").file(photo)
+                .param("userEmail", "Kiosk@test.com"))
+            .andReturn();
+
+        mockMvc.perform(asyncDispatch(rejected))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().string("Retry-After", "2"))
+            .andExpect(jsonPath("$.error").value("Too many uploads (user limit), retry in 2s"));
+    }
+
+    @Test
+    void testRetryWithIdempotencyKeyReplaysResult() throws Exception {
+        when(googleDriveService.uploadPhoto(any(), eq("Eva"), any(), any()))
+            .thenReturn(Mono.just("file-eva"));
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            MvcResult result = mockMvc.perform(multipart("/api/upload-photo").file(photo)
+                    .param("userName", "Eva")
+                    .header("Idempotency-Key", "shot-eva-1"))
+                .andReturn();
+            mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fileId").value("file-eva"))
+                .andExpect(attempt == 0
+                    ? header().doesNotExist("Idempotent-Replayed")
+                    : header().string("Idempotent-Replayed", "true"));
+        }
+        verify(googleDriveService, times(1)).uploadPhoto(any(), eq("Eva"), any(), any());
+
+        // Same key, different photo
+        MvcResult reused = mockMvc.perform(multipart("/api/upload-photo")
+                .file(new MockMultipartFile("file", "other.jpg", "image/jpeg", new byte[] {9}))
+                .param("userName", "Eva")
+                .header("Idempotency-Key", "shot-eva-1"))
+            .andReturn();
+        mockMvc.perform(asyncDispatch(reused)).andExpect(status().isUnprocessableEntity());
+    }
+
+    @Test
+    void testDirectUploadSessionRoundTrip() throws Exception {
+        when(googleDriveService.startDirectUpload(eq("Ana"), any(), eq("image/png"), eq(2048L),
+                eq("https://camera.example.com")))
+            .thenReturn(Mono.just(new DirectUpload("session-1", "https://drive.example/upload?id=1", "Ana-photo.png")));
+        when(googleDriveService.completeDirectUpload("session-1", "file-9")).thenReturn(Mono.just("file-9"));
+        when(googleDriveService.completeDirectUpload("session-2", "file-9")).thenReturn(Mono.empty());
+
+        MvcResult started = mockMvc.perform(post("/api/upload-sessions")
+                .param("userName", "Ana")
+                .param("contentType", "image/png")
+                .param("size", "2048")
+                .header("Origin", "https://camera.example.com"))
+            .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.sessionId").value("session-1"))
+            .andExpect(jsonPath("$.uploadUrl").value("https://drive.example/upload?id=1"));
+
+        MvcResult completed = mockMvc.perform(post("/api/upload-sessions/session-1/complete").param("fileId", "file-9"))
+            .andReturn();
+        mockMvc.perform(asyncDispatch(completed))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.fileId").value("file-9"));
+
+        MvcResult unknown = mockMvc.perform(post("/api/upload-sessions/session-2/complete").param("fileId", "file-9"))
+            .andReturn();
+        mockMvc.perform(asyncDispatch(unknown)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testDirectUploadSessionNeedsSizeWithinLimit() throws Exception {
+        MvcResult noSize = mockMvc.perform(post("/api/upload-sessions").param("userName", "Ana")).andReturn();
+        mockMvc.perform(asyncDispatch(noSize)).andExpect(status().isBadRequest());
+
+        MvcResult tooLarge = mockMvc.perform(post("/api/upload-sessions")
+                .param("userName", "Ana")
+                .param("size", "30000000"))
+            .andReturn();
+        mockMvc.perform(asyncDispatch(tooLarge)).andExpect(status().isPayloadTooLarge());
+        verify(googleDriveService, never()).startDirectUpload(any(), any(), any(), anyLong(), any());
+    }
+
+    @Test
+    void testDriveStatusIsServedFromSnapshotWithETag() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/drive-status"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=15, must-revalidate"))
+            .andExpect(jsonPath("$.health.state").value("NOT_CONFIGURED"))
+            .andExpect(jsonPath("$.health.recentUploads.uploads").value(0))
+            .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/drive-status").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/impersonation-status").header(HttpHeaders.IF_NONE_MATCH, etag))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.configured").value(false));
+    }
+}
@@ -0,0 +1,165 @@
+package com.magumboi.webcameraapp.controller;
+
+import com.magumboi.webcameraapp.service.IdempotencyRegistry;
+import com.magumboi.webcameraapp.service.PhotoStorage;
+import com.magumboi.webcameraapp.service.PhotoUploadResult;
+import com.magumboi.webcameraapp.service.UploadAdmissionService;
+import com.magumboi.webcameraapp.service.UploadProgressRegistry;
+import com.magumboi.webcameraapp.service.UploadSpoolService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.multipart.MultipartFile;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(ReactivePhotoUploadController.class)
+@Import({PhotoUploadHandler.class, UploadProgressRegistry.class, UploadAdmissionService.class,
+    IdempotencyRegistry.class})
+@TestPropertySource(properties = {"upload.admission.ip.burst=1000", "upload.reactive.max-file-size=1KB"})
+class ReactivePhotoUploadControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private PhotoStorage photoStorage;
+
+    @MockBean
+    private UploadSpoolService uploadSpoolService;
+
+    @Autowired
+    private PhotoUploadHandler uploadHandler;
+
+    @Test
+    void testPhotoIsStreamedToStorageAndTemporaryFileRemoved() {
+        AtomicReference<byte[]> stored = new AtomicReference<>();
+        AtomicReference<Path> tempFile = new AtomicReference<>();
+        when(photoStorage.uploadPhoto(any(), eq("Ana"), eq("ana@test.com"), any())).thenAnswer(invocation -> {
+            MultipartFile photo = invocation.getArgument(0);
+            stored.set(photo.getBytes());
+            tempFile.set(((TempFilePhoto) photo).getPath());
+            return Mono.just("file-123");
+        });
+
+        webTestClient.post().uri("/api/upload-photo")
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+            .bodyValue(form("file", new byte[] {1, 2, 3}, "userName", "Ana", "userEmail", "ana@test.com"))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.fileId").isEqualTo("file-123")
+            .jsonPath("$.uploadedFor").isEqualTo("Ana");
+
+        assertArrayEquals(new byte[] {1, 2, 3}, stored.get());
+        assertFalse(Files.exists(tempFile.get()));
+    }
+
+    @Test
+    void testOversizedPhotoIsRejectedWithoutUploading() {
+        webTestClient.post().uri("/api/upload-photo")
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+            .bodyValue(form("file", new byte[2048]))
+            .exchange()
+            .expectStatus().isEqualTo(413);
+
+        verify(photoStorage, never()).uploadPhoto(any(), any(), any(), any());
+    }
+
+    @Test
+    void testBatchReceivesEveryFile() {
+        when(photoStorage.uploadPhotos(any(), eq("Ana"), any())).thenAnswer(invocation -> {
+            List<MultipartFile> photos = invocation.getArgument(0);
+            return Mono.just(photos.stream()
+                .map(photo -> new PhotoUploadResult(photo.getOriginalFilename(), "id-" + photo.getSize(), null))
+                .toList());
+        });
+
+        webTestClient.post().uri("/api/upload-photos")
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+            .bodyValue(form("files", new byte[] {1}, "files", new byte[] {1, 2}, "userName", "Ana"))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.uploaded").isEqualTo(2)
+            .jsonPath("$.results[1].fileId").isEqualTo("id-2");
+    }
+
+    @Test
+    void testSharedUploadKeepsTemporaryFileAfterClientLeaves() throws Exception {
+        Sinks.One<String> drive = Sinks.one();
+        when(photoStorage.uploadPhoto(any(), eq("Ana"), any(), any())).thenReturn(drive.asMono());
+        Path first = tempPhoto();
+
+        uploadHandler.uploadPhoto(photo(first), "Ana", null, null, "key-1", "10.0.0.1", TempFilePhoto.delete(first))
+            .subscribe().dispose();
+        assertTrue(Files.exists(first), "the shared upload still reads the photo");
+
+        drive.tryEmitValue("file-123");
+        awaitDeleted(first);
+
+        Path retried = tempPhoto();
+        ResponseEntity<Map<String, String>> replay = uploadHandler.uploadPhoto(photo(retried), "Ana", null, null,
+            "key-1", "10.0.0.1", TempFilePhoto.delete(retried)).block();
+        assertEquals("file-123", replay.getBody().get("fileId"));
+        awaitDeleted(retried);
+    }
+
+    private static Path tempPhoto() throws IOException {
+        return Files.write(Files.createTempFile("upload-", ".part"), new byte[] {1, 2, 3});
+    }
+
+    private static TempFilePhoto photo(Path path) {
+        return new TempFilePhoto("file", "photo.jpg", "image/jpeg", path, 3);
+    }
+
+    private static void awaitDeleted(Path path) throws InterruptedException {
+        for (int i = 0; i < 200 && Files.exists(path); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse(Files.exists(path));
+    }
+
+    /**
+     * Builds a multipart body from name/value pairs; byte[] values become image parts
+     */
+    private static Object form(Object... namesAndValues) {
+        MultipartBodyBuilder builder = new MultipartBodyBuilder();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            String name = (String) namesAndValues[i];
+            if (namesAndValues[i + 1] instanceof byte[] bytes) {
+                builder.part(name, new ByteArrayResource(bytes) {
+                    @Override
+                    public String getFilename() {
+                        return "photo.jpg";
+                    }
+                }).contentType(MediaType.IMAGE_JPEG);
+            } else {
+                builder.part(name, namesAndValues[i + 1]);
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.magumboi.webcameraapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DedupIndexTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final DedupIndex.Key photoInAna = new DedupIndex.Key("abc", "folder-ana");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testSameContentIsScopedToFolderAndExpires() throws Exception {
+        DedupIndex index = new DedupIndex(10, Duration.ofMinutes(5), null, now::get);
+        index.put(photoInAna, "file-1");
+
+        assertEquals("file-1", index.get(photoInAna));
+        assertNull(index.get(new DedupIndex.Key("abc", "folder-luis")));
+
+        now.addAndGet(Duration.ofMinutes(5).toMillis());
+        assertNull(index.get(photoInAna));
+        assertEquals(1, index.getHits());
+        assertEquals(2, index.getMisses());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() throws Exception {
+        DedupIndex index = new DedupIndex(2, Duration.ofHours(1), null, now::get);
+        index.put(new DedupIndex.Key("a", ""), "file-a");
+        index.put(new DedupIndex.Key("b", ""), "file-b");
+        index.get(new DedupIndex.Key("a", ""));
+        index.put(new DedupIndex.Key("c", ""), "file-c");
+
+        assertEquals("file-a", index.get(new DedupIndex.Key("a", "")));
+        assertNull(index.get(new DedupIndex.Key("b", "")));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testStoreSurvivesRestartAndDropsRemovedEntries() throws Exception {
+        Path store = dir.resolve("dedup/index.log");
+        try (DedupIndex index = new DedupIndex(10, Duration.ofHours(1), store, now::get)) {
+            index.put(photoInAna, "file-1");
+            index.put(new DedupIndex.Key("def", ""), "file-2");
+            index.put(new DedupIndex.Key("old", ""), "file-3");
+            index.invalidate(new DedupIndex.Key("def", ""), "file-2");
+        }
+        Files.writeString(store, "torn line", java.nio.file.StandardOpenOption.APPEND);
+
+        try (DedupIndex reopened = new DedupIndex(10, Duration.ofHours(1), store, now::get)) {
+            assertEquals("file-1", reopened.get(photoInAna));
+            assertEquals("file-3", reopened.get(new DedupIndex.Key("old", "")));
+            assertNull(reopened.get(new DedupIndex.Key("def", "")));
+        }
+        // Compacted on load: one line per live entry
+        assertEquals(2, Files.readAllLines(store).size());
+    }
+
+    @Test
+    void testContentHashIsSha256OfBytes() throws Exception {
+        MockMultipartFile photo = new MockMultipartFile("file", "photo.jpg", "image/jpeg",
+            "abc".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad",
+            DedupIndex.contentHash(photo));
+    }
+}
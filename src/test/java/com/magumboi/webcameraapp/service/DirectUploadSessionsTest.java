@@ -0,0 +1,56 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.services.drive.model.File;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectUploadSessionsTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final DirectUploadSessions sessions = new DirectUploadSessions(10, Duration.ofHours(1), now::get);
+
+    @Test
+    void testSessionsWithTheSameNameOnlyAcceptTheirOwnFile() {
+        DirectUploadSessions.Session first = sessions.open(null, null, "Ana", "folder-ana", "Ana-camera-photo.png", 3);
+        DirectUploadSessions.Session second = sessions.open(null, null, "Ana", "folder-ana", "Ana-camera-photo.png", 3);
+
+        File uploaded = file("Ana-camera-photo.png", first.sessionId());
+
+        assertTrue(first.uploaded(uploaded));
+        assertFalse(second.uploaded(uploaded));
+        assertFalse(first.uploaded(file("Ana-camera-photo.png", null)));
+    }
+
+    @Test
+    void testTrashedMovedOrResizedFileIsRejected() {
+        DirectUploadSessions.Session session = sessions.open(null, null, "Ana", "folder-ana", "Ana-camera-photo.png", 3);
+
+        assertFalse(session.uploaded(file("Ana-camera-photo.png", session.sessionId()).setTrashed(true)));
+        assertFalse(session.uploaded(file("Ana-camera-photo.png", session.sessionId()).setParents(List.of("other"))));
+        assertFalse(session.uploaded(file("Ana-camera-photo.png", session.sessionId()).setSize(30_000_000L)));
+    }
+
+    @Test
+    void testSessionsExpire() {
+        DirectUploadSessions.Session session = sessions.open(null, null, "Ana", "folder-ana", "Ana-camera-photo.png", 3);
+
+        now.addAndGet(Duration.ofHours(1).toNanos());
+
+        assertNull(sessions.get(session.sessionId()));
+        assertEquals(0, sessions.size());
+    }
+
+    private static File file(String name, String sessionId) {
+        File file = new File().setName(name).setSize(3L).setParents(List.of("folder-ana"));
+        if (sessionId != null) {
+            file.setAppProperties(Map.of(DirectUploadSessions.SESSION_PROPERTY, sessionId));
+        }
+        return file;
+    }
+}
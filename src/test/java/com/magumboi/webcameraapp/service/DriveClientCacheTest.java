@@ -0,0 +1,47 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.services.drive.Drive;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class DriveClientCacheTest {
+
+    @Test
+    void testReusesClientPerEmail() {
+        AtomicInteger built = new AtomicInteger();
+        DriveClientCache cache = new DriveClientCache(10, email -> {
+            built.incrementAndGet();
+            return mock(Drive.class);
+        });
+
+        Drive first = cache.get("user@test.com");
+        Drive second = cache.get("user@test.com");
+
+        assertSame(first, second);
+        assertEquals(1, built.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        DriveClientCache cache = new DriveClientCache(2, email -> mock(Drive.class));
+
+        Drive a = cache.get("a@test.com");
+        cache.get("b@test.com");
+        cache.get("a@test.com");
+        cache.get("c@test.com");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertSame(a, cache.get("a@test.com"));
+        cache.get("b@test.com");
+        assertEquals(4, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getEvictions());
+    }
+}
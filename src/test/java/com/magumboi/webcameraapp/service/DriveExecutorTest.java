@@ -0,0 +1,47 @@
+package com.magumboi.webcameraapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DriveExecutorTest {
+
+    @Test
+    void testConcurrencyIsCappedAndQueueReported() throws Exception {
+        DriveExecutor executor = new DriveExecutor(DriveExecutor.Mode.VIRTUAL, 8, 2);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(6);
+        AtomicInteger maxSeen = new AtomicInteger();
+        try {
+            for (int i = 0; i < 6; i++) {
+                executor.execute(() -> {
+                    maxSeen.accumulateAndGet(executor.getActiveCount(), Math::max);
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    done.countDown();
+                });
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while (executor.getActiveCount() < 2 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, executor.getActiveCount());
+            assertEquals(4, executor.getQueueDepth());
+
+            release.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertTrue(maxSeen.get() <= 2);
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(0, executor.getQueueDepth());
+        assertEquals(6, executor.getCompletedCount());
+    }
+}
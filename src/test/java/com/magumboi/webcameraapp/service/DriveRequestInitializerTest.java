@@ -0,0 +1,52 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.client.http.ByteArrayContent;
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestFactory;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DriveRequestInitializerTest {
+
+    private final AtomicInteger attempts = new AtomicInteger();
+    private final HttpRequestFactory factory = new MockHttpTransport() {
+        @Override
+        public MockLowLevelHttpRequest buildRequest(String method, String url) {
+            return new MockLowLevelHttpRequest(url) {
+                @Override
+                public LowLevelHttpResponse execute() throws IOException {
+                    attempts.incrementAndGet();
+                    throw new IOException("connection reset");
+                }
+            };
+        }
+    }.createRequestFactory(new DriveRequestInitializer(null, 1, 5000));
+
+    @Test
+    void testCreateIsNotRetriedAtTransportLevel() throws Exception {
+        HttpRequest create = factory.buildPostRequest(
+            new GenericUrl("https://www.googleapis.com/upload/drive/v3/files?uploadType=multipart"),
+            ByteArrayContent.fromString("application/json", "{}"));
+
+        assertThrows(IOException.class, create::execute);
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void testResumableChunkIsRetriedAtTransportLevel() throws Exception {
+        HttpRequest chunk = factory.buildPutRequest(
+            new GenericUrl("https://www.googleapis.com/upload/drive/v3/files?uploadType=resumable&upload_id=abc"),
+            ByteArrayContent.fromString("image/jpeg", "bytes"));
+
+        assertThrows(IOException.class, chunk::execute);
+        assertTrue(attempts.get() > 1, "attempts: " + attempts.get());
+    }
+}
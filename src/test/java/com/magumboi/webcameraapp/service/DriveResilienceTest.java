@@ -0,0 +1,125 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DriveResilienceTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final List<Long> sleeps = new ArrayList<>();
+    private final DriveResilience resilience = new DriveResilience(3, Duration.ofMillis(100), Duration.ofSeconds(5),
+        2, Duration.ofSeconds(30), now::get, sleeps::add);
+
+    @Test
+    void testRetriesRateLimitHonoringRetryAfter() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = resilience.call("default", "files.list", () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw httpError(429, "2");
+            }
+            return "ok";
+        });
+
+        assertEquals("ok", result);
+        assertEquals(2, calls.get());
+        assertEquals(List.of(2000L), sleeps);
+    }
+
+    @Test
+    void testClientErrorsAreNotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+
+        HttpResponseException error = assertThrows(HttpResponseException.class,
+            () -> resilience.call("default", "files.get", () -> {
+                calls.incrementAndGet();
+                throw httpError(404, null);
+            }));
+
+        assertEquals(404, error.getStatusCode());
+        assertEquals(1, calls.get());
+        assertEquals(DriveResilience.BreakerState.CLOSED, resilience.getState("default"));
+    }
+
+    @Test
+    void testBreakerOpensPerIdentityAndRecovers() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            assertThrows(HttpResponseException.class, () -> resilience.call("ana@test.com", "files.create", () -> {
+                throw httpError(503, null);
+            }));
+        }
+        assertEquals(DriveResilience.BreakerState.OPEN, resilience.getState("ana@test.com"));
+
+        AtomicInteger calls = new AtomicInteger();
+        DriveUnavailableException rejected = assertThrows(DriveUnavailableException.class,
+            () -> resilience.call("ana@test.com", "files.create", calls::incrementAndGet));
+        assertEquals(0, calls.get());
+        assertEquals(Duration.ofSeconds(30), rejected.getRetryAfter());
+        assertEquals("ok", resilience.call("luis@test.com", "files.create", () -> "ok"));
+
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertEquals("ok", resilience.call("ana@test.com", "files.create", () -> "ok"));
+        assertEquals(DriveResilience.BreakerState.CLOSED, resilience.getState("ana@test.com"));
+    }
+
+    @Test
+    void testBackoffIsBounded() {
+        IOException error = new IOException("connection reset");
+        for (int attempt = 1; attempt < 30; attempt++) {
+            long delay = resilience.backoffMillis(attempt, error);
+            assertTrue(delay >= 0 && delay <= 5000, "delay " + delay);
+        }
+    }
+
+    @Test
+    void testLongRetryAfterFailsFastWithDrivesDelay() {
+        AtomicInteger calls = new AtomicInteger();
+
+        DriveUnavailableException error = assertThrows(DriveUnavailableException.class,
+            () -> resilience.call("default", "files.create", () -> {
+                calls.incrementAndGet();
+                throw httpError(503, "120");
+            }));
+
+        assertEquals(1, calls.get());
+        assertTrue(sleeps.isEmpty());
+        assertEquals(Duration.ofSeconds(120), error.getRetryAfter());
+    }
+
+    @Test
+    void testRuntimeFailureReleasesHalfOpenTrial() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            assertThrows(HttpResponseException.class, () -> resilience.call("ana@test.com", "files.create", () -> {
+                throw httpError(503, null);
+            }));
+        }
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        assertThrows(IllegalStateException.class, () -> resilience.call("ana@test.com", "files.create", () -> {
+            throw new IllegalStateException("bug");
+        }));
+        assertEquals(DriveResilience.BreakerState.OPEN, resilience.getState("ana@test.com"));
+
+        now.addAndGet(Duration.ofSeconds(31).toNanos());
+        assertEquals("ok", resilience.call("ana@test.com", "files.create", () -> "ok"));
+        assertEquals(DriveResilience.BreakerState.CLOSED, resilience.getState("ana@test.com"));
+    }
+
+    private static HttpResponseException httpError(int status, String retryAfter) {
+        HttpHeaders headers = new HttpHeaders();
+        if (retryAfter != null) {
+            headers.setRetryAfter(retryAfter);
+        }
+        return new HttpResponseException.Builder(status, "error", headers).build();
+    }
+}
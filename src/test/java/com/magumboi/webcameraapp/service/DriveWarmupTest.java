@@ -0,0 +1,72 @@
+package com.magumboi.webcameraapp.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DriveWarmupTest {
+
+    private final DriveWarmup warmup = new DriveWarmup(Duration.ofMillis(200));
+    private final List<String> ran = new ArrayList<>();
+
+    @AfterEach
+    void shutdown() {
+        warmup.shutdown();
+    }
+
+    @Test
+    void testRunsStepsInOrderAndBecomesWarm() {
+        Map<String, DriveWarmup.Step> steps = new LinkedHashMap<>();
+        steps.put("credentials", () -> ran.add("credentials"));
+        steps.put("connections", () -> ran.add("connections"));
+
+        assertEquals(DriveWarmup.Status.PENDING, warmup.getStatus());
+        assertTrue(warmup.run(steps));
+
+        assertEquals(List.of("credentials", "connections"), ran);
+        assertTrue(warmup.isWarm());
+    }
+
+    @Test
+    void testFailingStepStopsWarmupUntilRetried() {
+        Map<String, DriveWarmup.Step> steps = new LinkedHashMap<>();
+        steps.put("credentials", () -> {
+            throw new IOException("token endpoint unreachable");
+        });
+        steps.put("connections", () -> ran.add("connections"));
+
+        assertFalse(warmup.run(steps));
+        assertEquals(DriveWarmup.Status.FAILED, warmup.getStatus());
+        assertEquals("credentials", warmup.getDetails().get("failedStep"));
+        assertTrue(ran.isEmpty());
+
+        steps.put("credentials", () -> ran.add("credentials"));
+        assertTrue(warmup.run(steps));
+        assertEquals(2, warmup.getDetails().get("attempts"));
+        assertFalse(warmup.getDetails().containsKey("failedStep"));
+    }
+
+    @Test
+    void testSlowStepIsCutOffAtDeadline() {
+        CountDownLatch never = new CountDownLatch(1);
+        Map<String, DriveWarmup.Step> steps = new LinkedHashMap<>();
+        steps.put("folders", never::await);
+        steps.put("after", () -> ran.add("after"));
+
+        long start = System.nanoTime();
+        assertFalse(warmup.run(steps));
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2000);
+        assertEquals("folders", warmup.getDetails().get("failedStep"));
+        assertTrue(ran.isEmpty());
+    }
+}
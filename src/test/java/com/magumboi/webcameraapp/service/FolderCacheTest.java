@@ -0,0 +1,84 @@
+package com.magumboi.webcameraapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FolderCacheTest {
+
+    private static final FolderCache.Key KEY = new FolderCache.Key("default", "root", "ana-fotos");
+
+    @Test
+    void testConcurrentResolutionsShareOneLoad() throws Exception {
+        FolderCache cache = new FolderCache(10, Duration.ofMinutes(5));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(pool.submit(() -> cache.get(KEY, () -> {
+                    loads.incrementAndGet();
+                    release.await(5, TimeUnit.SECONDS);
+                    return "folder-1";
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("folder-1", result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testExpiredAndInvalidatedEntriesReload() throws Exception {
+        AtomicLong now = new AtomicLong();
+        FolderCache cache = new FolderCache(10, Duration.ofSeconds(10), now::get);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("folder-1", cache.get(KEY, () -> "folder-" + loads.incrementAndGet()));
+        assertEquals("folder-1", cache.get(KEY, () -> "folder-" + loads.incrementAndGet()));
+
+        cache.invalidate(KEY, "folder-1");
+        assertEquals("folder-2", cache.get(KEY, () -> "folder-" + loads.incrementAndGet()));
+
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+        assertEquals("folder-3", cache.get(KEY, () -> "folder-" + loads.incrementAndGet()));
+    }
+
+    @Test
+    void testFailedLoadIsNotCached() throws Exception {
+        FolderCache cache = new FolderCache(10, Duration.ofMinutes(5));
+
+        assertThrows(IllegalStateException.class, () -> cache.get(KEY, () -> {
+            throw new IllegalStateException("Drive unavailable");
+        }));
+        assertEquals("folder-1", cache.get(KEY, () -> "folder-1"));
+    }
+
+    @Test
+    void testSizeIsBounded() throws Exception {
+        FolderCache cache = new FolderCache(2, Duration.ofMinutes(5));
+        for (int i = 0; i < 5; i++) {
+            String name = "user" + i + "-fotos";
+            cache.get(new FolderCache.Key("default", "root", name), () -> name);
+        }
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getEvictions());
+    }
+}
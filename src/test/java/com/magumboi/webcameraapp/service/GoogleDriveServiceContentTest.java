@@ -0,0 +1,71 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.client.http.InputStreamContent;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoogleDriveServiceContentTest {
+
+    private static final int PHOTO_SIZE = 8 * 1024 * 1024;
+
+    @Test
+    void testPhotoContentStreamsWithoutCopyingBytes() throws Exception {
+        MockMultipartFile photo = new MockMultipartFile("file", "photo.jpg", "image/jpeg", new byte[PHOTO_SIZE]) {
+            @Override
+            public byte[] getBytes() {
+                throw new AssertionError("photo must be streamed, not copied");
+            }
+        };
+        // Warm up class loading so it does not count against the measured upload
+        writeTo(GoogleDriveService.photoContent(photo));
+
+        long before = allocatedBytes();
+        long written = writeTo(GoogleDriveService.photoContent(photo));
+        long allocated = allocatedBytes() - before;
+
+        assertEquals(PHOTO_SIZE, written);
+        assertTrue(allocated < PHOTO_SIZE / 8,
+            "expected streaming upload to allocate well below the photo size, allocated " + allocated);
+    }
+
+    @Test
+    void testPhotoContentCanBeRebuiltForRetries() throws Exception {
+        MockMultipartFile photo = new MockMultipartFile("file", "photo.jpg", "image/jpeg", new byte[1024]);
+
+        assertEquals(1024, writeTo(GoogleDriveService.photoContent(photo)));
+        assertEquals(1024, writeTo(GoogleDriveService.photoContent(photo)));
+    }
+
+    private static long writeTo(InputStreamContent content) throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        content.writeTo(out);
+        assertEquals(content.getLength(), out.count);
+        return out.count;
+    }
+
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
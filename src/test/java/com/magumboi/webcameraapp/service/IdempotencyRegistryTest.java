@@ -0,0 +1,106 @@
+package com.magumboi.webcameraapp.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyRegistryTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final IdempotencyRegistry registry = new IdempotencyRegistry(2, Duration.ofMinutes(10), now::get);
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @Test
+    void testConcurrentRequestsShareOneRun() {
+        Sinks.One<String> upload = Sinks.one();
+
+        IdempotencyRegistry.Claim<String> first = registry.claim("k1", "photo", () -> {
+            runs.incrementAndGet();
+            return upload.asMono();
+        }, result -> true);
+        IdempotencyRegistry.Claim<String> retry = registry.claim("k1", "photo", this::run, result -> true);
+
+        first.result().subscribe();
+        retry.result().subscribe();
+        upload.tryEmitValue("file-1");
+
+        assertTrue(first.original());
+        assertFalse(retry.original());
+        assertEquals("file-1", retry.result().block());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void testCompletedResultIsReplayedUntilTtl() {
+        assertEquals("file-1", registry.claim("k1", "photo", this::run, result -> true).result().block());
+        assertEquals("file-1", registry.claim("k1", "photo", this::run, result -> true).result().block());
+        assertEquals(1, runs.get());
+
+        now.addAndGet(Duration.ofMinutes(10).toNanos());
+        assertEquals("file-2", registry.claim("k1", "photo", this::run, result -> true).result().block());
+        assertEquals(1, registry.getReplayed());
+    }
+
+    @Test
+    void testFailuresAreNotReplayed() {
+        IdempotencyRegistry.Claim<String> failed = registry.claim("k1", "photo",
+            () -> Mono.error(new IllegalStateException("drive down")), result -> true);
+        assertThrows(IllegalStateException.class, () -> failed.result().block());
+
+        registry.claim("k2", "photo", this::run, result -> false).result().block();
+
+        assertEquals(0, registry.size());
+        assertTrue(registry.claim("k1", "photo", this::run, result -> true).original());
+    }
+
+    @Test
+    void testKeyReusedForDifferentRequestIsRejected() {
+        registry.claim("k1", "photo-a", this::run, result -> true).result().block();
+
+        assertThrows(IdempotencyRegistry.KeyReusedException.class,
+            () -> registry.claim("k1", "photo-b", this::run, result -> true));
+    }
+
+    @Test
+    void testOldestKeysAreEvicted() {
+        registry.claim("k1", "photo", this::run, result -> true).result().block();
+        registry.claim("k2", "photo", this::run, result -> true).result().block();
+        registry.claim("k3", "photo", this::run, result -> true).result().block();
+
+        assertEquals(2, registry.size());
+        assertTrue(registry.claim("k1", "photo", this::run, result -> true).original());
+    }
+
+    @Test
+    void testRunOutlivesCancelledClient() {
+        Sinks.One<String> upload = Sinks.one();
+        IdempotencyRegistry.Claim<String> first = registry.claim("k1", "photo", upload::asMono, result -> true);
+
+        first.result().subscribe().dispose();
+        upload.tryEmitValue("file-1");
+
+        IdempotencyRegistry.Claim<String> retry = registry.claim("k1", "photo", this::run, result -> true);
+        assertFalse(retry.original());
+        assertEquals("file-1", retry.result().block());
+    }
+
+    @Test
+    void testStuckRunExpiresAfterTtl() {
+        Sinks.One<String> upload = Sinks.one();
+        registry.claim("k1", "photo", upload::asMono, result -> true).result().subscribe();
+
+        assertFalse(registry.claim("k1", "photo", this::run, result -> true).original());
+        now.addAndGet(Duration.ofMinutes(10).toNanos());
+        assertTrue(registry.claim("k1", "photo", this::run, result -> true).original());
+    }
+
+    private Mono<String> run() {
+        return Mono.fromSupplier(() -> "file-" + runs.incrementAndGet());
+    }
+}
@@ -0,0 +1,119 @@
+package com.magumboi.webcameraapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImagePhotoProcessorTest {
+
+    @Test
+    void testBalancedProfileDownscalesJpeg() throws Exception {
+        MultipartFile photo = image("jpeg", 4000, 3000, BufferedImage.TYPE_INT_RGB, "image/jpeg");
+
+        MultipartFile processed = new ImagePhotoProcessor("balanced", 0, 0).process(photo);
+
+        BufferedImage result = ImageIO.read(processed.getInputStream());
+        assertEquals("image/jpeg", processed.getContentType());
+        assertEquals(1920, result.getWidth());
+        assertEquals(1440, result.getHeight());
+        assertTrue(processed.getSize() < photo.getSize());
+    }
+
+    @Test
+    void testPngStaysPngWithCorrectContentType() throws Exception {
+        MultipartFile photo = image("png", 3000, 1000, BufferedImage.TYPE_INT_ARGB, "image/jpeg");
+
+        MultipartFile processed = new ImagePhotoProcessor("compact", 0, 0).process(photo);
+
+        BufferedImage result = ImageIO.read(processed.getInputStream());
+        assertEquals("image/png", processed.getContentType());
+        assertEquals(1280, result.getWidth());
+        assertTrue(result.getColorModel().hasAlpha());
+    }
+
+    @Test
+    void testOriginalProfileOnlyFixesContentType() throws Exception {
+        byte[] webp = "RIFF\0\0\0\0WEBPVP8 ".getBytes(StandardCharsets.ISO_8859_1);
+        MultipartFile photo = new MockMultipartFile("file", "photo.jpg", "image/jpeg", webp);
+
+        MultipartFile processed = new ImagePhotoProcessor("original", 0, 0).process(photo);
+
+        assertEquals("image/webp", processed.getContentType());
+        assertArrayEquals(webp, processed.getBytes());
+    }
+
+    @Test
+    void testExplicitMaxDimensionOverridesProfile() throws Exception {
+        MultipartFile photo = image("jpeg", 1000, 2000, BufferedImage.TYPE_INT_RGB, "image/jpeg");
+
+        MultipartFile processed = new ImagePhotoProcessor("high", 500, 0).process(photo);
+
+        BufferedImage result = ImageIO.read(new ByteArrayInputStream(processed.getBytes()));
+        assertEquals(250, result.getWidth());
+        assertEquals(500, result.getHeight());
+    }
+
+    @Test
+    void testExifIsStrippedWhenReEncodingDoesNotShrink() throws Exception {
+        // Noisy and already heavily compressed, so a quality 0.85 re-encode only grows
+        BufferedImage image = new BufferedImage(200, 150, BufferedImage.TYPE_INT_RGB);
+        Random random = new Random(42);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(0xFFFFFF));
+            }
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOut = ImageIO.createImageOutputStream(jpeg)) {
+            writer.setOutput(imageOut);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.2f);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        byte[] plain = jpeg.toByteArray();
+        byte[] exif = "Exif\0\0GPS 40.4168N 3.7038W".getBytes(StandardCharsets.ISO_8859_1);
+        ByteArrayOutputStream withExif = new ByteArrayOutputStream();
+        withExif.write(plain, 0, 2);
+        withExif.write(new byte[] {(byte) 0xFF, (byte) 0xE1, 0, (byte) (exif.length + 2)});
+        withExif.write(exif);
+        withExif.write(plain, 2, plain.length - 2);
+        MultipartFile photo = new MockMultipartFile("file", "photo.jpg", "image/jpeg", withExif.toByteArray());
+
+        MultipartFile processed = new ImagePhotoProcessor("balanced", 0, 0).process(photo);
+
+        assertEquals("image/jpeg", processed.getContentType());
+        assertArrayEquals(plain, processed.getBytes());
+        assertEquals(200, ImageIO.read(processed.getInputStream()).getWidth());
+    }
+
+    private static MultipartFile image(String format, int width, int height, int type, String contentType)
+            throws IOException {
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y += 7) {
+            for (int x = 0; x < width; x += 7) {
+                image.setRGB(x, y, 0xFF000000 | (x * 31 + y * 17) & 0xFFFFFF);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return new MockMultipartFile("file", "photo." + format, contentType, out.toByteArray());
+    }
+}
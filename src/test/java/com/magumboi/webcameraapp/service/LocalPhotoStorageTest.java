@@ -0,0 +1,150 @@
+package com.magumboi.webcameraapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import reactor.core.Exceptions;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalPhotoStorageTest {
+
+    @TempDir
+    Path dir;
+
+    private final MockMultipartFile photo =
+        new MockMultipartFile("file", "photo.png", "image/png", new byte[] {1, 2, 3, 4});
+
+    @Test
+    void testStoresPhotoInUserFolder() throws Exception {
+        LocalPhotoStorage storage = new LocalPhotoStorage(dir);
+        AtomicLong progress = new AtomicLong();
+
+        String fileId = storage.uploadPhoto(photo, " Ana ", null, (sent, total) -> progress.set(sent)).block();
+
+        assertTrue(fileId.matches("Ana-fotos/Ana-camera-photo-[0-9_-]+\\.png"), fileId);
+        assertArrayEquals(photo.getBytes(), Files.readAllBytes(dir.resolve(fileId)));
+        assertEquals(4, progress.get());
+        assertEquals("Ana-fotos", storage.resolveUserFolder("Ana", null).block());
+        assertTrue(storage.getFileInfo(fileId).block().contains("Size: 4 bytes"));
+    }
+
+    @Test
+    void testFileBackedPhotoIsCopiedFromItsFile() throws Exception {
+        LocalPhotoStorage storage = new LocalPhotoStorage(dir.resolve("photos"));
+        Path segment = Files.write(dir.resolve("segment.log"), new byte[] {9, 9, 1, 2, 3, 4, 9});
+        AtomicLong progress = new AtomicLong();
+
+        String fileId = storage.uploadPhoto(new SegmentPhoto(segment, 2, 4), "Ana", null,
+            (sent, total) -> progress.set(sent)).block();
+
+        assertArrayEquals(new byte[] {1, 2, 3, 4}, Files.readAllBytes(dir.resolve("photos").resolve(fileId)));
+        assertEquals(4, progress.get());
+    }
+
+    @Test
+    void testPhotosInTheSameSecondGetDistinctNames() throws Exception {
+        LocalPhotoStorage storage = new LocalPhotoStorage(dir);
+
+        List<PhotoUploadResult> results = storage.uploadPhotos(List.of(photo, photo), "Ana", null).block();
+        String single = storage.uploadPhoto(photo, null, null, UploadProgressListener.NONE).block();
+        String again = storage.uploadPhoto(photo, null, null, UploadProgressListener.NONE).block();
+
+        assertTrue(results.stream().allMatch(PhotoUploadResult::isSuccess));
+        assertNotEquals(results.get(0).fileId(), results.get(1).fileId());
+        assertNotEquals(single, again);
+        assertFalse(single.contains("/"));
+    }
+
+    @Test
+    void testFileInfoRejectsPathsOutsideStorage() throws Exception {
+        LocalPhotoStorage storage = new LocalPhotoStorage(dir.resolve("photos"));
+        Files.writeString(dir.resolve("secret.txt"), "secret");
+
+        RuntimeException error = assertThrows(RuntimeException.class,
+            () -> storage.getFileInfo("../secret.txt").block());
+        assertInstanceOf(NoSuchFileException.class, Exceptions.unwrap(error));
+    }
+
+    @Test
+    void testMetadataAndListingOfUserFolder() throws Exception {
+        LocalPhotoStorage storage = new LocalPhotoStorage(dir);
+        List<PhotoUploadResult> results = storage.uploadPhotos(List.of(photo, photo), "Ana", null).block();
+        String first = results.get(0).fileId();
+        String second = results.get(1).fileId();
+
+        Map<String, PhotoMetadata> found = storage.getMetadata(List.of(second, "Ana-fotos/missing.png", first), null)
+            .block();
+        assertEquals(List.of(second, first), List.copyOf(found.keySet()));
+        assertEquals(4L, found.get(first).size());
+
+        List<PhotoMetadata> listed = storage.listPhotos("Ana", null).collectList().block();
+        assertEquals(List.of(second, first), listed.stream().map(PhotoMetadata::id).toList());
+        assertTrue(storage.listPhotos("Nobody", null).collectList().block().isEmpty());
+    }
+
+    /**
+     * A photo stored in the middle of a larger file, readable only through its path
+     */
+    private record SegmentPhoto(Path path, long offset, long size) implements FileBackedPhoto {
+
+        @Override
+        public Path getPath() {
+            return path;
+        }
+
+        @Override
+        public long getOffset() {
+            return offset;
+        }
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return "photo.jpg";
+        }
+
+        @Override
+        public String getContentType() {
+            return "image/jpeg";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void transferTo(File dest) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.drive.Drive;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs metadata batch requests against a local stand-in for the Drive batch endpoint
+ */
+class MetadataBatchTest {
+
+    private static final Pattern FILE_GET = Pattern.compile("GET \\S*/drive/v3/files/([^?\\s]+)");
+
+    private HttpServer server;
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private final MetadataCache metadataCache = new MetadataCache(100, Duration.ofMinutes(10));
+    private boolean throttled;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/batch/drive/v3", this::handleBatch);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void testFetchesManyFilesInOneBatchAndRetriesOnlyThrottledOnes() throws Exception {
+        Map<String, PhotoMetadata> found = service().fetchMetadata(drive(), "default",
+            List.of("photo-1", "missing", "trashed", "throttled"));
+
+        assertEquals(List.of(List.of("photo-1", "missing", "trashed", "throttled"), List.of("throttled"),
+            List.of("ana-fotos")), batches);
+        assertEquals(2, found.size());
+        PhotoMetadata photo = found.get("photo-1");
+        assertEquals("photo-1.jpg", photo.name());
+        assertEquals(2048L, photo.size());
+        assertEquals("2026-01-02T03:04:05Z", photo.createdTime().toString());
+        assertNotNull(found.get("throttled"));
+        assertEquals(photo, metadataCache.get(new MetadataCache.Key("default", "photo-1")));
+        assertNull(metadataCache.get(new MetadataCache.Key("default", "missing")));
+    }
+
+    @Test
+    void testFilesOutsideThePhotoFoldersAreLeftOut() throws Exception {
+        GoogleDriveService service = service();
+
+        Map<String, PhotoMetadata> found = service.fetchMetadata(drive(), "default",
+            List.of("photo-1", "main-photo", "private-doc"));
+
+        assertEquals(Set.of("photo-1", "main-photo"), found.keySet());
+        assertNull(metadataCache.get(new MetadataCache.Key("default", "private-doc")));
+        // The parents are looked up once, after the files
+        assertEquals(List.of(List.of("photo-1", "main-photo", "private-doc"), List.of("ana-fotos", "private")),
+            batches);
+
+        service.fetchMetadata(drive(), "default", List.of("photo-2"));
+        assertEquals(List.of("photo-2"), batches.get(2));
+        assertEquals(3, batches.size());
+    }
+
+    private GoogleDriveService service() {
+        GoogleDriveService service = new GoogleDriveService();
+        ReflectionTestUtils.setField(service, "metadataCache", metadataCache);
+        ReflectionTestUtils.setField(service, "folderId", "main");
+        ReflectionTestUtils.setField(service, "resilience",
+            new DriveResilience(3, Duration.ZERO, Duration.ZERO, 5, Duration.ofSeconds(30)));
+        return service;
+    }
+
+    private Drive drive() {
+        return new Drive.Builder(new NetHttpTransport(), GsonFactory.getDefaultInstance(),
+                new DriveRequestInitializer(null, 10, 5000))
+            .setRootUrl("http://localhost:" + server.getAddress().getPort() + "/")
+            .setApplicationName("test")
+            .build();
+    }
+
+    private synchronized void handleBatch(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        List<String> ids = new ArrayList<>();
+        Matcher matcher = FILE_GET.matcher(body);
+        while (matcher.find()) {
+            ids.add(matcher.group(1));
+        }
+        batches.add(ids);
+
+        StringBuilder response = new StringBuilder();
+        for (String id : ids) {
+            response.append("--batch_response\r\n")
+                .append("Content-Type: application/http\r\n\r\n");
+            switch (id) {
+                case "missing" -> part(response, "404 Not Found",
+                    "{\"error\":{\"code\":404,\"message\":\"File not found: missing.\"}}");
+                case "throttled" -> {
+                    if (throttled) {
+                        part(response, "200 OK",
+                            "{\"id\":\"throttled\",\"name\":\"throttled.jpg\",\"parents\":[\"main\"]}");
+                    } else {
+                        throttled = true;
+                        part(response, "429 Too Many Requests",
+                            "{\"error\":{\"code\":429,\"message\":\"Rate limit exceeded\"}}");
+                    }
+                }
+                case "main-photo" -> part(response, "200 OK",
+                    "{\"id\":\"main-photo\",\"name\":\"main.jpg\",\"parents\":[\"main\"]}");
+                case "private-doc" -> part(response, "200 OK",
+                    "{\"id\":\"private-doc\",\"name\":\"salaries.pdf\",\"parents\":[\"private\"]}");
+                case "ana-fotos" -> part(response, "200 OK", "{\"id\":\"ana-fotos\",\"name\":\"ana-fotos\","
+                    + "\"mimeType\":\"application/vnd.google-apps.folder\",\"parents\":[\"main\"]}");
+                case "private" -> part(response, "200 OK", "{\"id\":\"private\",\"name\":\"private\","
+                    + "\"mimeType\":\"application/vnd.google-apps.folder\",\"parents\":[\"main\"]}");
+                case "trashed" -> part(response, "200 OK", "{\"id\":\"trashed\",\"name\":\"old.jpg\",\"trashed\":true}");
+                default -> part(response, "200 OK", "{\"id\":\"" + id + "\",\"name\":\"" + id + ".jpg\","
+                    + "\"mimeType\":\"image/jpeg\",\"size\":\"2048\",\"createdTime\":\"2026-01-02T03:04:05.000Z\","
+                    + "\"parents\":[\"ana-fotos\"]}");
+            }
+        }
+        response.append("--batch_response--\r\n");
+
+        byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "multipart/mixed; boundary=batch_response");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    private static void part(StringBuilder response, String status, String json) {
+        response.append("HTTP/1.1 ").append(status).append("\r\n")
+            .append("Content-Type: application/json; charset=UTF-8\r\n\r\n")
+            .append(json).append("\r\n");
+    }
+}
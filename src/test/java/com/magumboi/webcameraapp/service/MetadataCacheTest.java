@@ -0,0 +1,47 @@
+package com.magumboi.webcameraapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetadataCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final MetadataCache cache = new MetadataCache(2, Duration.ofMinutes(10), clock::get);
+
+    @Test
+    void testEntriesAreScopedToIdentityAndExpire() {
+        MetadataCache.Key ana = new MetadataCache.Key("ana@test.com", "file-1");
+        cache.put(ana, metadata("file-1"));
+
+        assertEquals("file-1", cache.get(ana).id());
+        assertNull(cache.get(new MetadataCache.Key("default", "file-1")));
+
+        clock.addAndGet(Duration.ofMinutes(11).toNanos());
+        assertNull(cache.get(ana));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        MetadataCache.Key first = new MetadataCache.Key("default", "file-1");
+        MetadataCache.Key second = new MetadataCache.Key("default", "file-2");
+        cache.put(first, metadata("file-1"));
+        cache.put(second, metadata("file-2"));
+        cache.get(first);
+        cache.put(new MetadataCache.Key("default", "file-3"), metadata("file-3"));
+
+        assertNotNull(cache.get(first));
+        assertNull(cache.get(second));
+        assertEquals(1, cache.getEvictions());
+    }
+
+    private static PhotoMetadata metadata(String id) {
+        return new PhotoMetadata(id, id + ".jpg", "image/jpeg", 3L, null, null);
+    }
+}
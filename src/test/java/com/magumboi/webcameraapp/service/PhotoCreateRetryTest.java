@@ -0,0 +1,97 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.File;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Retries photo creates against a local stand-in for Drive that stores the photo
+ * but drops the connection before answering
+ */
+class PhotoCreateRetryTest {
+
+    private static final Pattern TAG = Pattern.compile("\"uploadTag\"\\s*:\\s*\"([^\"]+)\"");
+
+    private HttpServer server;
+    private final AtomicInteger uploads = new AtomicInteger();
+    private volatile String storedTag;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/upload/drive/v3/files", this::handleUpload);
+        server.createContext("/drive/v3/files", this::handleList);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void testRetryFindsThePhotoInsteadOfUploadingItAgain() throws Exception {
+        GoogleDriveService service = new GoogleDriveService();
+        ReflectionTestUtils.setField(service, "resilience",
+            new DriveResilience(3, Duration.ZERO, Duration.ZERO, 5, Duration.ofSeconds(30)));
+        MockMultipartFile photo = new MockMultipartFile("file", "photo.jpg", "image/jpeg", new byte[]{1, 2, 3});
+
+        File created = service.createTagged(drive(), "default", new File().setName("photo.jpg"), photo,
+            (bytesUploaded, totalBytes) -> { });
+
+        assertEquals("file-1", created.getId());
+        assertEquals(1, uploads.get());
+    }
+
+    private Drive drive() {
+        return new Drive.Builder(new NetHttpTransport(), GsonFactory.getDefaultInstance(),
+                new DriveRequestInitializer(null, 10, 5000))
+            .setRootUrl("http://localhost:" + server.getAddress().getPort() + "/")
+            .setApplicationName("test")
+            .build();
+    }
+
+    private void handleUpload(HttpExchange exchange) throws IOException {
+        InputStream in = "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))
+            ? new GZIPInputStream(exchange.getRequestBody()) : exchange.getRequestBody();
+        String body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        uploads.incrementAndGet();
+        Matcher tag = TAG.matcher(body);
+        storedTag = tag.find() ? tag.group(1) : null;
+        // Drive stored the photo, but the response is lost
+        exchange.close();
+    }
+
+    private void handleList(HttpExchange exchange) throws IOException {
+        String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), StandardCharsets.UTF_8);
+        String json = storedTag != null && query.contains("value='" + storedTag + "'")
+            ? "{\"files\":[{\"id\":\"file-1\",\"name\":\"photo.jpg\"}]}"
+            : "{\"files\":[]}";
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,168 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.drive.Drive;
+import com.google.api.services.drive.model.File;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs resumable uploads against a local stand-in for the Drive upload endpoint
+ * that drops the connection in the middle of the transfer
+ */
+class ResumableUploadTest {
+
+    private static final int CHUNK_SIZE = 256 * 1024;
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes (\\d+)-(\\d+)/(\\d+)");
+
+    private HttpServer server;
+    private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    private final List<String> contentRanges = new CopyOnWriteArrayList<>();
+    private int chunkRequests;
+    private boolean dropped;
+    private long wireBytes;
+    private Headers sessionRequest;
+    private String sessionMetadata;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/upload/drive/v3/files", exchange -> {
+            sessionRequest = exchange.getRequestHeaders();
+            sessionMetadata = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Location", baseUrl() + "upload/session/1");
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.createContext("/upload/session/1", this::handleChunk);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void testDroppedConnectionResumesFromCommittedOffset() throws Exception {
+        byte[] photoBytes = new byte[CHUNK_SIZE * 4];
+        new Random(42).nextBytes(photoBytes);
+        MockMultipartFile photo = new MockMultipartFile("file", "photo.jpg", "image/jpeg", photoBytes);
+        List<Long> progress = new CopyOnWriteArrayList<>();
+
+        File uploaded = service().createFile(drive(), new File().setName("photo.jpg"), photo,
+            (bytesUploaded, totalBytes) -> progress.add(bytesUploaded));
+
+        assertEquals("file-1", uploaded.getId());
+        assertTrue(dropped, "the stand-in server should have dropped one chunk");
+        assertArrayEquals(photoBytes, received.toByteArray());
+        assertTrue(contentRanges.contains("bytes */" + photoBytes.length),
+            "the uploader should have asked for the committed offset");
+        assertTrue(wireBytes <= photoBytes.length + CHUNK_SIZE,
+            "only the dropped chunk should be sent twice, sent " + wireBytes);
+        assertEquals((long) photoBytes.length, progress.get(progress.size() - 1));
+    }
+
+    @Test
+    void testDirectUploadSessionIsOpenedWithoutSendingBytes() throws Exception {
+        GoogleDriveService service = service();
+        ReflectionTestUtils.setField(service, "rootUrl", baseUrl());
+        ReflectionTestUtils.setField(service, "sessionTransport", new ApacheHttpTransport());
+
+        String uploadUrl = service.openResumableSession(drive(),
+            new File().setName("Ana-camera-photo.png").setParents(List.of("folder-ana")),
+            "image/png", 1234, "https://camera.example.com");
+
+        assertEquals(baseUrl() + "upload/session/1", uploadUrl);
+        assertEquals("https://camera.example.com", sessionRequest.getFirst("Origin"));
+        assertEquals("image/png", sessionRequest.getFirst("X-Upload-Content-Type"));
+        assertEquals("1234", sessionRequest.getFirst("X-Upload-Content-Length"));
+        assertTrue(sessionMetadata.contains("\"name\":\"Ana-camera-photo.png\""), sessionMetadata);
+        assertTrue(sessionMetadata.contains("folder-ana"), sessionMetadata);
+    }
+
+    private GoogleDriveService service() {
+        GoogleDriveService service = new GoogleDriveService();
+        ReflectionTestUtils.setField(service, "resumableUpload", true);
+        ReflectionTestUtils.setField(service, "uploadChunkSize", DataSize.ofBytes(CHUNK_SIZE));
+        return service;
+    }
+
+    private Drive drive() {
+        return new Drive.Builder(new NetHttpTransport(), GsonFactory.getDefaultInstance(),
+                new DriveRequestInitializer(null, 10, 5000))
+            .setRootUrl(baseUrl())
+            .setApplicationName("test")
+            .build();
+    }
+
+    private String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    private synchronized void handleChunk(HttpExchange exchange) throws IOException {
+        String contentRange = exchange.getRequestHeaders().getFirst("Content-Range");
+        contentRanges.add(contentRange);
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        wireBytes += body.length;
+
+        Matcher range = CONTENT_RANGE.matcher(contentRange);
+        if (!range.matches()) {
+            // "bytes */total": the client asks how much was committed
+            respondIncomplete(exchange);
+            return;
+        }
+        if (++chunkRequests == 2 && !dropped) {
+            // Simulate a network blip: close the connection without any response
+            dropped = true;
+            exchange.close();
+            return;
+        }
+        long start = Long.parseLong(range.group(1));
+        long total = Long.parseLong(range.group(3));
+        if (start != received.size()) {
+            exchange.sendResponseHeaders(400, -1);
+            exchange.close();
+            return;
+        }
+        received.write(body);
+        if (received.size() == total) {
+            byte[] json = "{\"id\":\"file-1\",\"name\":\"photo.jpg\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, json.length);
+            exchange.getResponseBody().write(json);
+            exchange.close();
+        } else {
+            respondIncomplete(exchange);
+        }
+    }
+
+    private void respondIncomplete(HttpExchange exchange) throws IOException {
+        if (received.size() > 0) {
+            exchange.getResponseHeaders().add("Range", "bytes=0-" + (received.size() - 1));
+        }
+        exchange.sendResponseHeaders(308, -1);
+        exchange.close();
+    }
+}
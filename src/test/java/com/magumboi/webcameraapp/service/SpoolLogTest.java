@@ -0,0 +1,121 @@
+package com.magumboi.webcameraapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpoolLogTest {
+
+    @TempDir
+    Path spoolDir;
+
+    @Test
+    void testPendingEntriesSurviveRestart() throws Exception {
+        SpoolLog log = new SpoolLog(spoolDir, 1024 * 1024);
+        assertTrue(log.recover().isEmpty());
+        SpoolLog.Entry first = append(log, "ana", new byte[] {1, 2, 3});
+        SpoolLog.Entry second = append(log, "luis", new byte[] {4, 5});
+        log.markDone(first);
+        log.close();
+
+        SpoolLog reopened = new SpoolLog(spoolDir, 1024 * 1024);
+        List<SpoolLog.Entry> pending = reopened.recover();
+
+        assertEquals(1, pending.size());
+        assertEquals(second.id(), pending.get(0).id());
+        assertEquals("luis", pending.get(0).metadata().get("userName"));
+        assertArrayEquals(new byte[] {4, 5}, read(reopened, pending.get(0)));
+        reopened.close();
+    }
+
+    @Test
+    void testTornTailIsTruncated() throws Exception {
+        SpoolLog log = new SpoolLog(spoolDir, 1024 * 1024);
+        log.recover();
+        SpoolLog.Entry entry = append(log, "ana", new byte[] {1, 2, 3});
+        append(log, "luis", new byte[100]);
+        log.close();
+
+        Path segment = segments().get(0);
+        long cut = Files.size(segment) - 10;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(cut);
+        }
+
+        SpoolLog reopened = new SpoolLog(spoolDir, 1024 * 1024);
+        List<SpoolLog.Entry> pending = reopened.recover();
+
+        assertEquals(1, pending.size());
+        assertEquals(entry.id(), pending.get(0).id());
+        assertEquals(entry.dataOffset() + 3 + 4, Files.size(segment));
+        reopened.close();
+    }
+
+    @Test
+    void testDrainedSegmentsAreDeleted() throws Exception {
+        SpoolLog log = new SpoolLog(spoolDir, 64);
+        log.recover();
+        SpoolLog.Entry first = append(log, "ana", new byte[100]);
+        SpoolLog.Entry second = append(log, "ana", new byte[100]);
+        assertEquals(2, segments().size());
+        assertEquals(2, log.pendingCount());
+
+        log.markDone(first);
+        log.markDone(second);
+
+        assertEquals(1, segments().size(), "only the active segment should remain");
+        assertEquals(0, log.pendingCount());
+        log.close();
+    }
+
+    @Test
+    void testConcurrentAppendsAcrossSegmentRollsAreAllRecovered() throws Exception {
+        SpoolLog log = new SpoolLog(spoolDir, 4096);
+        log.recover();
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+        List<Future<SpoolLog.Entry>> appends = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            appends.add(writers.submit(() -> append(log, "ana", new byte[500])));
+        }
+        for (Future<SpoolLog.Entry> append : appends) {
+            append.get(10, TimeUnit.SECONDS);
+        }
+        writers.shutdown();
+        log.close();
+
+        assertEquals(200, new SpoolLog(spoolDir, 4096).recover().size());
+    }
+
+    private static SpoolLog.Entry append(SpoolLog log, String userName, byte[] data) throws IOException {
+        return log.append(Map.of("userName", userName), new ByteArrayInputStream(data), data.length);
+    }
+
+    private static byte[] read(SpoolLog log, SpoolLog.Entry entry) throws IOException {
+        try (InputStream in = log.open(entry)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(".log")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.magumboi.webcameraapp.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.HealthEndpointGroup;
+import org.springframework.boot.actuate.health.HealthEndpointGroups;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SpoolReadinessPostProcessorTest {
+
+    @Test
+    void testDriveLeavesOnlyTheReadinessGroup() {
+        HealthEndpointGroup primary = everything();
+        HealthEndpointGroup readiness = everything();
+        HealthEndpointGroup liveness = everything();
+        HealthEndpointGroups groups = HealthEndpointGroups.of(primary,
+            Map.of("readiness", readiness, "liveness", liveness));
+
+        HealthEndpointGroups processed = new SpoolReadinessPostProcessor().postProcessHealthEndpointGroups(groups);
+
+        assertFalse(processed.get("readiness").isMember("drive"));
+        assertTrue(processed.get("readiness").isMember("readinessState"));
+        assertTrue(processed.get("liveness").isMember("drive"));
+        assertTrue(processed.getPrimary().isMember("drive"));
+    }
+
+    private static HealthEndpointGroup everything() {
+        HealthEndpointGroup group = mock(HealthEndpointGroup.class);
+        when(group.isMember(anyString())).thenReturn(true);
+        return group;
+    }
+}
@@ -0,0 +1,124 @@
+package com.magumboi.webcameraapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadAdmissionServiceTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private UploadAdmissionService admission(int userBurst, int ipBurst, int maxInFlight) {
+        return new UploadAdmissionService(true,
+            new UploadAdmissionService.RateLimit(60, userBurst),
+            new UploadAdmissionService.RateLimit(60, ipBurst),
+            maxInFlight, 100, false, now::get);
+    }
+
+    @Test
+    void testUserBucketRefillsAtConfiguredRate() {
+        UploadAdmissionService admission = admission(2, 100, 100);
+
+        admission.admit("Kiosk", null, "10.0.0.1", 1).release();
+        admission.admit("kiosk ", null, "10.0.0.1", 1).release();
+        UploadRejectedException rejected = assertThrows(UploadRejectedException.class,
+            () -> admission.admit("Kiosk", null, "10.0.0.1", 1));
+
+        assertEquals(UploadAdmissionService.Limit.USER, rejected.getLimit());
+        assertEquals(Duration.ofSeconds(1), rejected.getRetryAfter());
+        assertEquals(1, rejected.getRetryAfterSeconds());
+
+        // Other users on the same device are unaffected, and the kiosk gets a token back after a second
+        admission.admit("Ana", null, "10.0.0.1", 1).release();
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        admission.admit("Kiosk", null, "10.0.0.1", 1).release();
+    }
+
+    @Test
+    void testClientIpLimitDoesNotChargeUser() {
+        UploadAdmissionService admission = admission(5, 1, 100);
+
+        admission.admit(null, "ana@test.com", "10.0.0.1", 1).release();
+        UploadRejectedException rejected = assertThrows(UploadRejectedException.class,
+            () -> admission.admit(null, "ana@test.com", "10.0.0.1", 1));
+        assertEquals(UploadAdmissionService.Limit.CLIENT_IP, rejected.getLimit());
+
+        // The refused upload did not cost Ana a token: 4 left from another address
+        for (int i = 0; i < 4; i++) {
+            admission.admit(null, "ANA@test.com", "10.0.0." + (i + 2), 1).release();
+        }
+        assertThrows(UploadRejectedException.class,
+            () -> admission.admit(null, "ana@test.com", "10.0.0.9", 1));
+    }
+
+    @Test
+    void testInFlightCapReleasesOnCompletion() {
+        UploadAdmissionService admission = admission(100, 100, 2);
+
+        UploadAdmissionService.Permit first = admission.admit("Ana", null, "10.0.0.1", 1);
+        admission.admit("Luis", null, "10.0.0.2", 1);
+        UploadRejectedException rejected = assertThrows(UploadRejectedException.class,
+            () -> admission.admit("Eva", null, "10.0.0.3", 1));
+        assertEquals(UploadAdmissionService.Limit.CONCURRENCY, rejected.getLimit());
+        assertEquals(2, admission.getInFlight());
+
+        first.release();
+        first.release();
+        assertEquals(1, admission.getInFlight());
+        admission.admit("Eva", null, "10.0.0.3", 1);
+    }
+
+    @Test
+    void testBatchIsChargedOneTokenPerPhoto() {
+        UploadAdmissionService admission = admission(3, 100, 100);
+
+        admission.admit("Ana", null, null, 3).release();
+        UploadRejectedException rejected = assertThrows(UploadRejectedException.class,
+            () -> admission.admit("Ana", null, null, 1));
+        assertEquals(Duration.ofSeconds(1), rejected.getRetryAfter());
+
+        // Two photos later the bucket holds two tokens, not enough for a batch of three
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        rejected = assertThrows(UploadRejectedException.class, () -> admission.admit("Ana", null, null, 3));
+        assertEquals(Duration.ofSeconds(1), rejected.getRetryAfter());
+    }
+
+    @Test
+    void testBatchLargerThanBurstIsRefusedUpFront() {
+        UploadAdmissionService admission = admission(3, 100, 100);
+
+        assertEquals(3, admission.getMaxBatch());
+        assertThrows(IllegalArgumentException.class, () -> admission.admit("Ana", null, null, 20));
+        // Nothing was charged
+        admission.admit("Ana", null, null, 3).release();
+    }
+
+    @Test
+    void testTrackedKeysStayBoundedWhileAllAreActive() {
+        UploadAdmissionService admission = admission(100, 1, 1000);
+        admission.admit(null, null, "10.0.0.1", 1).release();
+
+        for (int i = 0; i < 500; i++) {
+            now.incrementAndGet();
+            admission.admit(null, null, "192.168." + (i / 256) + "." + (i % 256), 1).release();
+            if (i % 20 == 0) {
+                // Recently used buckets are kept, so this client stays limited
+                assertThrows(UploadRejectedException.class, () -> admission.admit(null, null, "10.0.0.1", 1));
+            }
+            assertTrue(admission.getTrackedKeys() <= 100, "tracked " + admission.getTrackedKeys());
+        }
+    }
+
+    @Test
+    void testForwardedForOnlyWhenTrusted() {
+        UploadAdmissionService trusting = new UploadAdmissionService(true,
+            new UploadAdmissionService.RateLimit(60, 1), new UploadAdmissionService.RateLimit(60, 1),
+            10, 100, true, now::get);
+
+        assertEquals("203.0.113.7", trusting.clientIp("10.0.0.1", "203.0.113.7, 10.0.0.1"));
+        assertEquals("10.0.0.1", admission(1, 1, 1).clientIp("10.0.0.1", "203.0.113.7"));
+    }
+}
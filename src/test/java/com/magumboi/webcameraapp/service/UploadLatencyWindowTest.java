@@ -0,0 +1,45 @@
+package com.magumboi.webcameraapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadLatencyWindowTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final UploadLatencyWindow window = new UploadLatencyWindow(100, Duration.ofMinutes(1), clock::get);
+
+    @Test
+    void testPercentilesAndSuccessRate() {
+        for (int millis = 1; millis <= 100; millis++) {
+            window.record(Duration.ofMillis(millis).toNanos(), millis % 10 != 0);
+        }
+
+        UploadLatencyWindow.Summary summary = window.summary();
+        assertEquals(100, summary.uploads());
+        assertEquals(10, summary.failures());
+        assertEquals(0.9, summary.successRate(), 1e-9);
+        assertEquals(50, summary.p50Millis());
+        assertEquals(95, summary.p95Millis());
+        assertEquals(99, summary.p99Millis());
+    }
+
+    @Test
+    void testKeepsOnlyTheLatestUploadsWithinMaxAge() {
+        window.record(Duration.ofSeconds(30).toNanos(), false);
+        clock.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertEquals(0, window.summary().uploads());
+        assertEquals(1.0, window.summary().successRate());
+
+        for (int i = 0; i < 150; i++) {
+            window.record(Duration.ofMillis(i).toNanos(), true);
+        }
+        UploadLatencyWindow.Summary summary = window.summary();
+        assertEquals(100, summary.uploads());
+        assertEquals(0, summary.failures());
+        assertEquals(99, summary.p50Millis());
+    }
+}
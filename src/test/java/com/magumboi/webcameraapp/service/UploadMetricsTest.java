@@ -0,0 +1,54 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final UploadMetrics metrics = new UploadMetrics(registry);
+
+    @Test
+    void testStagesAreTimedEvenWhenTheyFail() {
+        assertThrows(IOException.class, () -> metrics.time(UploadMetrics.Stage.EXECUTE, () -> {
+            throw new IOException("reset");
+        }));
+
+        assertEquals(1, registry.get("drive.upload.stage").tag("stage", "execute").timer().count());
+        assertEquals(0, registry.get("drive.upload.stage").tag("stage", "folder").timer().count());
+    }
+
+    @Test
+    void testFailuresAreCountedByStatus() {
+        Timer.Sample sample = metrics.start();
+        HttpResponseException quota = new HttpResponseException.Builder(429, "Too Many Requests", new HttpHeaders()).build();
+        metrics.recordFailure(sample, new RuntimeException("Failed to upload", quota));
+        metrics.recordFailure(metrics.start(), new DriveUnavailableException("open", Duration.ofSeconds(5)));
+        metrics.recordSuccess(metrics.start());
+
+        assertEquals(1, registry.get("drive.upload.results").tags("outcome", "failure", "status", "429").counter().count());
+        assertEquals(1, registry.get("drive.upload.results").tags("status", "circuit_open").counter().count());
+        assertEquals(1, registry.get("drive.upload").tag("outcome", "success").timer().count());
+        assertEquals(2, registry.get("drive.upload").tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    void testExecutorGauges() {
+        DriveExecutor executor = new DriveExecutor(DriveExecutor.Mode.FIXED, 1, 3);
+        try {
+            metrics.bindExecutor(executor);
+            assertEquals(3, registry.get("drive.executor.limit").gauge().value());
+            assertEquals(0, registry.get("drive.executor.queued").gauge().value());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
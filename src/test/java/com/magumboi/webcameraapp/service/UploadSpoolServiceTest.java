@@ -0,0 +1,99 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UploadSpoolServiceTest {
+
+    @TempDir
+    Path spoolDir;
+
+    private final PhotoStorage photoStorage = mock(PhotoStorage.class);
+    private final AtomicInteger uploads = new AtomicInteger();
+    private UploadSpoolService spool;
+
+    @AfterEach
+    void stopSpool() {
+        spool.shutdown();
+    }
+
+    @Test
+    void testPhotoDriveRejectsIsMovedToFailedWithoutRetrying() throws Exception {
+        failUploadsWith(400);
+        spool = start();
+
+        String spoolId = spool.enqueue(photo(), "ana", null);
+
+        UploadSpoolService.Status status = awaitFailed(spoolId);
+        assertEquals(1, status.attempts());
+        assertEquals(1, uploads.get());
+        assertArrayEquals(new byte[] {1, 2, 3}, Files.readAllBytes(spoolDir.resolve("failed/" + spoolId + ".bin")));
+        assertTrue(Files.readString(spoolDir.resolve("failed/" + spoolId + ".json")).contains("\"userName\":\"ana\""));
+        assertEquals(1L, spool.getStats().get("deadLettered"));
+        assertEquals(0, spool.getStats().get("pending"));
+    }
+
+    @Test
+    void testRetryableFailureGivesUpAfterMaxAttempts() throws Exception {
+        failUploadsWith(503);
+        spool = start();
+
+        String spoolId = spool.enqueue(photo(), "ana", null);
+
+        assertEquals(3, awaitFailed(spoolId).attempts());
+        assertEquals(3, uploads.get());
+    }
+
+    private void failUploadsWith(int status) {
+        when(photoStorage.uploadPhoto(any(), any(), any(), any())).thenAnswer(invocation -> {
+            uploads.incrementAndGet();
+            return Mono.error(new HttpResponseException.Builder(status, "error", new HttpHeaders()).build());
+        });
+    }
+
+    private UploadSpoolService start() {
+        UploadSpoolService service = new UploadSpoolService();
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "spoolDir", spoolDir.toString());
+        ReflectionTestUtils.setField(service, "segmentSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(service, "drainParallelism", 1);
+        ReflectionTestUtils.setField(service, "retryDelay", Duration.ofMillis(1));
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "photoStorage", photoStorage);
+        service.init();
+        return service;
+    }
+
+    private UploadSpoolService.Status awaitFailed(String spoolId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            UploadSpoolService.Status status = spool.getStatus(spoolId);
+            if (status != null && status.state() == UploadSpoolService.State.FAILED) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        fail("spooled photo " + spoolId + " was not given up on");
+        return null;
+    }
+
+    private static MockMultipartFile photo() {
+        return new MockMultipartFile("file", "photo.jpg", "image/jpeg", new byte[] {1, 2, 3});
+    }
+}
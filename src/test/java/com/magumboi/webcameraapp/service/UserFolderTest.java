@@ -0,0 +1,107 @@
+package com.magumboi.webcameraapp.service;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.drive.Drive;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Resolves user folders against a local stand-in for the Drive files endpoint
+ */
+class UserFolderTest {
+
+    private HttpServer server;
+    private final CountDownLatch listingStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseListing = new CountDownLatch(1);
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final AtomicInteger creates = new AtomicInteger();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/drive/v3/files", this::handleFiles);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        releaseListing.countDown();
+        server.stop(0);
+    }
+
+    @Test
+    void testUploadDuringListingOfNewUserCreatesTheFolder() throws Exception {
+        GoogleDriveService service = service();
+
+        // The listing's lookup is held by the server until the upload resolved its folder
+        CompletableFuture<Object> listing = CompletableFuture.supplyAsync(
+            () -> ReflectionTestUtils.invokeMethod(service, "findPhotoFolder", "ana", null));
+        assertTrue(listingStarted.await(5, TimeUnit.SECONDS));
+
+        assertEquals("ana-fotos", service.getUserFolder("ana", drive(), null));
+        assertEquals(1, creates.get());
+
+        releaseListing.countDown();
+        assertNull(listing.get(5, TimeUnit.SECONDS));
+    }
+
+    private GoogleDriveService service() {
+        GoogleDriveService service = new GoogleDriveService();
+        ReflectionTestUtils.setField(service, "driveService", drive());
+        ReflectionTestUtils.setField(service, "folderId", "main");
+        ReflectionTestUtils.setField(service, "folderCache", new FolderCache(100, Duration.ofMinutes(10)));
+        ReflectionTestUtils.setField(service, "resilience",
+            new DriveResilience(3, Duration.ZERO, Duration.ZERO, 5, Duration.ofSeconds(30)));
+        return service;
+    }
+
+    private Drive drive() {
+        return new Drive.Builder(new NetHttpTransport(), GsonFactory.getDefaultInstance(),
+                new DriveRequestInitializer(null, 10, 5000))
+            .setRootUrl("http://localhost:" + server.getAddress().getPort() + "/")
+            .setApplicationName("test")
+            .build();
+    }
+
+    private void handleFiles(HttpExchange exchange) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        String json;
+        if ("POST".equals(exchange.getRequestMethod())) {
+            creates.incrementAndGet();
+            json = "{\"id\":\"ana-fotos\",\"name\":\"ana-fotos\"}";
+        } else {
+            if (lookups.incrementAndGet() == 1) {
+                listingStarted.countDown();
+                try {
+                    releaseListing.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            json = "{\"files\":[]}";
+        }
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}